@@ -0,0 +1,44 @@
+package fr.jmini.asciidoctorj.dynamicinclude.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Generates the corpus described by the benchmark parameters in a temporary folder, once per trial.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractCorpusBenchmark {
+
+    @Param({ "100", "1000", "10000", "50000" })
+    public int pages;
+
+    @Param({ "5" })
+    public int headings;
+
+    @Param({ "5" })
+    public int xrefs;
+
+    protected Path dir;
+    protected List<Path> files;
+
+    @Setup(Level.Trial)
+    public void generateCorpus() throws IOException {
+        dir = Files.createTempDirectory("corpus")
+                .toRealPath();
+        files = CorpusGenerator.generate(dir, pages, headings, xrefs, 42L);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        CorpusGenerator.delete(dir);
+    }
+}
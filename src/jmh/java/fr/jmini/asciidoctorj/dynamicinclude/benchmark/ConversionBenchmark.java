@@ -0,0 +1,224 @@
+package fr.jmini.asciidoctorj.dynamicinclude.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.Asciidoctor.Factory;
+import org.asciidoctor.AttributesBuilder;
+import org.asciidoctor.OptionsBuilder;
+import org.asciidoctor.SafeMode;
+import org.asciidoctor.ast.Document;
+import org.asciidoctor.extension.PreprocessorReader;
+
+import fr.jmini.asciidoctorj.dynamicinclude.DynamicIncludeProcessor;
+import fr.jmini.asciidoctorj.dynamicinclude.IncludeHolder;
+import fr.jmini.asciidoctorj.dynamicinclude.path.PathUtil;
+
+/**
+ * End-to-end benchmark: converts generated document trees with {@link Asciidoctor#convertFile(java.io.File, OptionsBuilder)} and splits the wall time between the extension and Asciidoctor (JRuby).
+ * <p>
+ * For each iteration, it reports the wall time, the time spent in the extension (without the {@code push_include} calls), the number and duration of the {@code push_include} calls and the peak heap usage.
+ * <p>
+ * The Asciidoctor instance is reused for all the iterations of a corpus size. The caches of the extension are cleared before each iteration, unless {@code --keep-caches} is set.
+ * <p>
+ * Usage: {@code ./gradlew conversionBenchmark -Pargs="--pages 100,1000,10000 --warmup 2 --iterations 5 --headings 5 --xrefs 5 --parallel --keep-caches"} (all arguments are optional).
+ */
+public class ConversionBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        List<Integer> pageCounts = new ArrayList<>();
+        int warmup = 2;
+        int iterations = 5;
+        int headings = 5;
+        int xrefs = 5;
+        boolean parallel = false;
+        boolean keepCaches = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "--pages":
+                for (String value : args[++i].split(",")) {
+                    pageCounts.add(Integer.valueOf(value.trim()));
+                }
+                break;
+            case "--warmup":
+                warmup = Integer.parseInt(args[++i]);
+                break;
+            case "--iterations":
+                iterations = Integer.parseInt(args[++i]);
+                break;
+            case "--headings":
+                headings = Integer.parseInt(args[++i]);
+                break;
+            case "--xrefs":
+                xrefs = Integer.parseInt(args[++i]);
+                break;
+            case "--parallel":
+                parallel = true;
+                break;
+            case "--keep-caches":
+                keepCaches = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (pageCounts.isEmpty()) {
+            pageCounts.add(100);
+            pageCounts.add(1000);
+            pageCounts.add(10000);
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%8s %10s %10s %14s %16s %12s %10s %14s", "pages", "iteration", "wall (ms)", "extension (ms)", "asciidoctor (ms)", "push_include", "push (ms)", "peak heap (MB)"));
+        for (int pageCount : pageCounts) {
+            Path dir = Files.createTempDirectory("corpus")
+                    .toRealPath();
+            try {
+                CorpusGenerator.generate(dir, pageCount, headings, xrefs, 42L);
+                run(dir, pageCount, warmup, iterations, parallel, keepCaches);
+            } finally {
+                CorpusGenerator.delete(dir);
+            }
+        }
+    }
+
+    private static void run(Path dir, int pageCount, int warmup, int iterations, boolean parallel, boolean keepCaches) {
+        Asciidoctor asciidoctor = Factory.create();
+        // Replace the processor registered by the service loader with the instrumented one:
+        asciidoctor.unregisterAllExtensions();
+        InstrumentedProcessor processor = new InstrumentedProcessor();
+        asciidoctor.javaExtensionRegistry()
+                .includeProcessor(processor);
+
+        AttributesBuilder attributesBuilder = AttributesBuilder.attributes()
+                .setAnchors(false)
+                .sectionNumbers(false)
+                .attribute("nofooter", true);
+        if (parallel) {
+            attributesBuilder.attribute("dynamic-include-parallel", true);
+        }
+        OptionsBuilder optionsBuilder = OptionsBuilder.options()
+                .attributes(attributesBuilder)
+                .baseDir(dir.toFile())
+                .docType("book")
+                .toFile(false)
+                .safe(SafeMode.UNSAFE);
+
+        long totalWall = 0;
+        long totalExtension = 0;
+        for (int i = 0; i < warmup + iterations; i++) {
+            if (!keepCaches) {
+                PathUtil.clearScanCache();
+                PathUtil.clearPageOrderCache();
+                DynamicIncludeProcessor.getParsedFileCache()
+                        .clear();
+            }
+            processor.reset();
+            System.gc();
+            resetPeakHeap();
+
+            long start = System.nanoTime();
+            asciidoctor.convertFile(dir.resolve(CorpusGenerator.INDEX_FILE_NAME)
+                    .toFile(), optionsBuilder);
+            long wall = System.nanoTime() - start;
+
+            long push = processor.getPushNanos();
+            long extension = processor.getProcessNanos() - push;
+            boolean measured = i >= warmup;
+            if (measured) {
+                totalWall += wall;
+                totalExtension += extension;
+            }
+            String iteration = measured ? Integer.toString(i - warmup + 1) : "warmup";
+            System.out.println(String.format(Locale.ROOT, "%8d %10s %10.1f %14.1f %16.1f %12d %10.1f %14.1f", pageCount, iteration, toMillis(wall), toMillis(extension), toMillis(wall - extension), processor.getPushCount(), toMillis(push),
+                    peakHeap() / 1024.0 / 1024.0));
+        }
+        if (iterations > 0) {
+            System.out.println(String.format(Locale.ROOT, "%8d %10s %10.1f %14.1f %16.1f", pageCount, "average", toMillis(totalWall) / iterations, toMillis(totalExtension) / iterations, toMillis(totalWall - totalExtension) / iterations));
+        }
+        asciidoctor.shutdown();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return the sum of the peak usages of the heap memory pools, in bytes.
+     */
+    private static long peakHeap() {
+        long result = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                result += pool.getPeakUsage()
+                        .getUsed();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Measures the time spent in {@link #process(Document, PreprocessorReader, String, Map)} and in the {@code push_include} calls.
+     */
+    private static class InstrumentedProcessor extends DynamicIncludeProcessor {
+        private final AtomicLong processNanos = new AtomicLong();
+        private final AtomicLong pushNanos = new AtomicLong();
+        private final AtomicLong pushCount = new AtomicLong();
+
+        @Override
+        public void process(Document document, PreprocessorReader reader, String target, Map<String, Object> attributes) {
+            long start = System.nanoTime();
+            try {
+                super.process(document, reader, target, attributes);
+            } finally {
+                processNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        protected void pushInclude(PreprocessorReader reader, IncludeHolder include, Map<String, Object> attributes) {
+            long start = System.nanoTime();
+            try {
+                super.pushInclude(reader, include, attributes);
+            } finally {
+                pushNanos.addAndGet(System.nanoTime() - start);
+                pushCount.incrementAndGet();
+            }
+        }
+
+        void reset() {
+            processNanos.set(0);
+            pushNanos.set(0);
+            pushCount.set(0);
+        }
+
+        long getProcessNanos() {
+            return processNanos.get();
+        }
+
+        long getPushNanos() {
+            return pushNanos.get();
+        }
+
+        long getPushCount() {
+            return pushCount.get();
+        }
+    }
+}
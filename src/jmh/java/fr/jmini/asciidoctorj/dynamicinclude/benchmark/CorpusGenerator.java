@@ -0,0 +1,127 @@
+package fr.jmini.asciidoctorj.dynamicinclude.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates a synthetic tree of pages ({@code chapter-NNN/page-NNNNN.adoc}) and an {@code index.adoc} file including all of them with the dynamic include macro.
+ * <p>
+ * Each page has a level 2 title followed by level 3 sections. The section titles are the same in every page, so that their anchors have to be shifted.
+ * <p>
+ * The xref links point to sections of random pages and alternate between the {@code <<file#anchor, text>>} and the {@code xref:file#anchor[text]} syntax.
+ */
+public class CorpusGenerator {
+
+    public static final int PAGES_PER_CHAPTER = 100;
+
+    public static final String GLOB = "chapter-*/*.adoc";
+
+    public static final String INDEX_FILE_NAME = "index.adoc";
+
+    private static final String LOREM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.";
+
+    /**
+     * @param root
+     *            folder where the pages are created
+     * @param pageCount
+     *            number of pages
+     * @param headings
+     *            number of section titles per page
+     * @param xrefs
+     *            number of xref links per page
+     * @param seed
+     *            seed of the random link targets, the same seed produces the same corpus
+     * @return the created pages, in creation order.
+     */
+    public static List<Path> generate(Path root, int pageCount, int headings, int xrefs, long seed) throws IOException {
+        Random random = new Random(seed);
+        List<Path> pages = new ArrayList<>();
+        for (int i = 0; i < pageCount; i++) {
+            Path page = root.resolve(pagePath(i));
+            Files.createDirectories(page.getParent());
+            Files.write(page, createPage(i, pageCount, headings, xrefs, random).getBytes(StandardCharsets.UTF_8));
+            pages.add(page);
+        }
+        String index = "= Generated corpus\n\ninclude::dynamic:" + GLOB + "[]\n";
+        Files.write(root.resolve(INDEX_FILE_NAME), index.getBytes(StandardCharsets.UTF_8));
+        return pages;
+    }
+
+    static String pagePath(int page) {
+        return String.format(Locale.ROOT, "chapter-%03d/page-%05d.adoc", page / PAGES_PER_CHAPTER, page);
+    }
+
+    static String createPage(int page, int pageCount, int headings, int xrefs, Random random) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("== Page ")
+                .append(page)
+                .append("\n\n");
+        sb.append(LOREM)
+                .append("\n\n");
+        int sections = Math.max(headings, 1);
+        int blocks = headings + 1;
+        for (int h = 0; h < blocks; h++) {
+            if (h > 0) {
+                sb.append("=== Section ")
+                        .append(h)
+                        .append("\n\n");
+            }
+            sb.append(LOREM)
+                    .append("\n");
+            for (int x = h; x < xrefs; x += blocks) {
+                String target = pagePath(random.nextInt(pageCount));
+                String anchor = "_section_" + (1 + random.nextInt(sections));
+                if (x % 2 == 0) {
+                    sb.append("See <<")
+                            .append(target)
+                            .append("#")
+                            .append(anchor)
+                            .append(", the other page>>.\n");
+                } else {
+                    sb.append("See xref:")
+                            .append(target)
+                            .append("#")
+                            .append(anchor)
+                            .append("[the other page].\n");
+                }
+            }
+            sb.append("\n");
+        }
+        sb.append("[source, java]\n")
+                .append("----\n")
+                .append("== not a title\n")
+                .append("----\n");
+        return sb.toString();
+    }
+
+    public static void delete(Path root) throws IOException {
+        if (Files.notExists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private CorpusGenerator() {
+    }
+}
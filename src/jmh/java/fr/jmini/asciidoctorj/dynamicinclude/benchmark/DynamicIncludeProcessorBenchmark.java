@@ -0,0 +1,123 @@
+package fr.jmini.asciidoctorj.dynamicinclude.benchmark;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.jmini.asciidoctorj.dynamicinclude.AnchorRegistry;
+import fr.jmini.asciidoctorj.dynamicinclude.DynamicIncludeProcessor;
+import fr.jmini.asciidoctorj.dynamicinclude.FileHolder;
+import fr.jmini.asciidoctorj.dynamicinclude.FileHolderIndex;
+import fr.jmini.asciidoctorj.dynamicinclude.ParsedFileHolder;
+import fr.jmini.asciidoctorj.dynamicinclude.TitleScanner;
+
+/**
+ * Each benchmark method processes all the pages of the corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DynamicIncludeProcessorBenchmark extends AbstractCorpusBenchmark {
+
+    private static final String IDPREFIX = "_";
+    private static final String IDSEPARATOR = "_";
+
+    private static final Function<String, Optional<String>> NO_ATTRIBUTES = key -> Optional.empty();
+
+    private List<ParsedFileHolder> parsedFiles;
+    private List<FileHolder> fileHolders;
+    private FileHolderIndex index;
+    private List<String> titles;
+
+    @Setup(Level.Trial)
+    public void parseCorpus() {
+        parsedFiles = new ArrayList<>();
+        titles = new ArrayList<>();
+        for (Path file : files) {
+            ParsedFileHolder parsedFile = DynamicIncludeProcessor.parseFile(file, IDPREFIX, IDSEPARATOR);
+            parsedFiles.add(parsedFile);
+            TitleScanner titleScanner = new TitleScanner(parsedFile.getContent());
+            while (titleScanner.find()) {
+                titles.add(titleScanner.getTitle());
+            }
+        }
+        fileHolders = createFileHolders();
+        index = FileHolderIndex.of(fileHolders);
+    }
+
+    /**
+     * Reads the files and finds their titles.
+     */
+    @Benchmark
+    public void parseFile(Blackhole blackhole) {
+        for (Path file : files) {
+            blackhole.consume(DynamicIncludeProcessor.parseFile(file, IDPREFIX, IDSEPARATOR));
+        }
+    }
+
+    /**
+     * Computes the level offsets and the anchors shifting of the already parsed files.
+     */
+    @Benchmark
+    public List<FileHolder> createFileHolder() {
+        return createFileHolders();
+    }
+
+    @Benchmark
+    public void computeTitleId(Blackhole blackhole) {
+        AnchorRegistry existingAnchors = new AnchorRegistry();
+        for (String title : titles) {
+            blackhole.consume(DynamicIncludeProcessor.computeTitleId(title, IDPREFIX, IDSEPARATOR, existingAnchors));
+        }
+    }
+
+    @Benchmark
+    public void replaceXrefDoubleAngledBracketLinks(Blackhole blackhole) {
+        for (FileHolder fileHolder : fileHolders) {
+            blackhole.consume(DynamicIncludeProcessor.replaceXrefDoubleAngledBracketLinks(fileHolder.getContent(), index, dir, fileHolder, false, NO_ATTRIBUTES));
+        }
+    }
+
+    @Benchmark
+    public void replaceXrefInlineLinks(Blackhole blackhole) {
+        for (FileHolder fileHolder : fileHolders) {
+            blackhole.consume(DynamicIncludeProcessor.replaceXrefInlineLinks(fileHolder.getContent(), index, dir, fileHolder, false, NO_ATTRIBUTES));
+        }
+    }
+
+    /**
+     * Both xref syntaxes, in a single pass.
+     */
+    @Benchmark
+    public void replaceXrefLinks(Blackhole blackhole) {
+        for (FileHolder fileHolder : fileHolders) {
+            blackhole.consume(DynamicIncludeProcessor.replaceXrefLinks(fileHolder.getContent(), index, dir, fileHolder, false, NO_ATTRIBUTES));
+        }
+    }
+
+    @Benchmark
+    public void countLines(Blackhole blackhole) {
+        for (FileHolder fileHolder : fileHolders) {
+            blackhole.consume(DynamicIncludeProcessor.countLines(fileHolder.getContent()));
+        }
+    }
+
+    private List<FileHolder> createFileHolders() {
+        AnchorRegistry globalExistingAnchors = new AnchorRegistry();
+        List<FileHolder> result = new ArrayList<>(parsedFiles.size());
+        for (ParsedFileHolder parsedFile : parsedFiles) {
+            result.add(DynamicIncludeProcessor.createFileHolder(dir, parsedFile, IDPREFIX, IDSEPARATOR, 1, globalExistingAnchors));
+        }
+        return result;
+    }
+}
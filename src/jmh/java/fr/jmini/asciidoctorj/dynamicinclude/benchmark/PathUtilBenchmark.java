@@ -0,0 +1,55 @@
+package fr.jmini.asciidoctorj.dynamicinclude.benchmark;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+
+import fr.jmini.asciidoctorj.dynamicinclude.path.PathUtil;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PathUtilBenchmark extends AbstractCorpusBenchmark {
+
+    private List<Path> shuffledFiles;
+
+    @Setup(Level.Trial)
+    public void shuffleFiles() {
+        shuffledFiles = new ArrayList<>(files);
+        Collections.shuffle(shuffledFiles, new Random(42L));
+    }
+
+    /**
+     * Directory walk, without the cache of the previous walks.
+     */
+    @Benchmark
+    public List<Path> findFiles() {
+        PathUtil.clearScanCache();
+        return PathUtil.findFiles(dir, CorpusGenerator.GLOB, Collections.emptyList());
+    }
+
+    /**
+     * Cached walk result (only the directory modification times are checked).
+     */
+    @Benchmark
+    public List<Path> findFilesCached() {
+        return PathUtil.findFiles(dir, CorpusGenerator.GLOB, Collections.emptyList());
+    }
+
+    @Benchmark
+    public List<Path> sortFiles() {
+        return PathUtil.sortFiles(PathUtilBenchmark::ignore, shuffledFiles, Collections.emptyList());
+    }
+
+    private static void ignore(String message) {
+    }
+}
@@ -0,0 +1,65 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set of anchors already in use, with constant time membership checks.
+ * <p>
+ * For each base anchor, the registry remembers the smallest suffix that might still be free, so that computing the next {@code <base><idseparator><n>} candidate does not probe again the suffixes that are known to be taken.
+ */
+public class AnchorRegistry {
+
+    private final Set<String> anchors = new LinkedHashSet<>();
+    private final Map<String, Integer> nextSuffixes = new HashMap<>();
+
+    public AnchorRegistry() {
+    }
+
+    public AnchorRegistry(Collection<String> anchors) {
+        this.anchors.addAll(anchors);
+    }
+
+    public boolean contains(String anchor) {
+        return anchors.contains(anchor);
+    }
+
+    /**
+     * @return {@code true} if the anchor was not registered yet.
+     */
+    public boolean add(String anchor) {
+        return anchors.add(anchor);
+    }
+
+    public int size() {
+        return anchors.size();
+    }
+
+    /**
+     * @return the registered anchors, in registration order.
+     */
+    public List<String> getAnchors() {
+        return new ArrayList<>(anchors);
+    }
+
+    /**
+     * Computes the first anchor {@code <anchorWithoutSuffix><idseparator><n>} (with {@code n >= 2}) that is not registered. The returned anchor is not registered by this method.
+     */
+    public String nextFreeAnchor(String anchorWithoutSuffix, String idseparator) {
+        String prefix = anchorWithoutSuffix + idseparator;
+        int i = nextSuffixes.getOrDefault(prefix, 2);
+        String candidate = prefix + i;
+        while (anchors.contains(candidate)) {
+            i++;
+            candidate = prefix + i;
+        }
+        // all suffixes below 'i' are taken, the next search can start at 'i':
+        nextSuffixes.put(prefix, i);
+        return candidate;
+    }
+}
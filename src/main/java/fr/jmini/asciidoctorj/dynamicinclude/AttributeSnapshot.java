@@ -0,0 +1,72 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.asciidoctor.ast.Document;
+
+/**
+ * Immutable copy of the document attributes, taken once per directive.
+ * <p>
+ * Reading an attribute from the {@link Document} crosses the Java/Ruby boundary (with conversions of the key and of the value), the snapshot copies all the attributes at once so that the options and the {@code {attribute}} references in the xref targets are resolved on the Java side only. The
+ * results of {@link #resolveAttributes(String)} are memoized, since the same targets are usually found in several pages. The snapshot can be shared between threads.
+ */
+public class AttributeSnapshot implements Function<String, Optional<String>> {
+
+    private final Map<String, String> attributes;
+    private final Map<String, String> resolved = new ConcurrentHashMap<>();
+
+    public AttributeSnapshot(Map<String, String> attributes) {
+        this.attributes = Collections.unmodifiableMap(new HashMap<>(attributes));
+    }
+
+    public static AttributeSnapshot of(Document document) {
+        Map<String, String> attributes = new HashMap<>();
+        for (Entry<String, Object> entry : document.getAttributes()
+                .entrySet()) {
+            if (entry.getValue() != null) {
+                attributes.put(entry.getKey(), entry.getValue()
+                        .toString());
+            }
+        }
+        return new AttributeSnapshot(attributes);
+    }
+
+    @Override
+    public Optional<String> apply(String key) {
+        return Optional.ofNullable(attributes.get(key));
+    }
+
+    public boolean hasAttribute(String key) {
+        return attributes.containsKey(key);
+    }
+
+    public String getAttribute(String key, String defaultValue) {
+        return attributes.getOrDefault(key, defaultValue);
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return the value with the {@code {attribute}} references replaced, see {@link DynamicIncludeProcessor#resolveAttributes(String, Function)}.
+     */
+    public String resolveAttributes(String value) {
+        if (value.indexOf('{') < 0) {
+            return value;
+        }
+        String result = resolved.get(value);
+        if (result == null) {
+            // Not computed with computeIfAbsent(..) because the resolution of the nested references is recursive and can fail:
+            result = DynamicIncludeProcessor.resolveAttributes(value, this::apply);
+            resolved.putIfAbsent(value, result);
+        }
+        return result;
+    }
+}
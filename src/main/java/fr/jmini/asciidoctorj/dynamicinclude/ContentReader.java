@@ -0,0 +1,141 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * Reads the included files (UTF-8).
+ * <p>
+ * Files smaller than the threshold are read into a byte array and converted to a {@link String}, as usual. Larger files are memory-mapped (by chunks of {@value #MAPPED_CHUNK_SIZE} bytes) and decoded with a reusable {@link CharsetDecoder} into a heap {@link CharBuffer}. The bytes of
+ * the file are never copied to the heap, the titles can be searched directly in the decoded chars, which are then copied once into the final {@link String}.
+ * <p>
+ * The buffer is pooled per thread (behind a soft reference, so that it is released when the heap is short) only when it holds at most {@value #MAX_POOLED_CHARS} chars. The buffers of larger files are allocated for one read and released after use. A memory-mapped file can not
+ * be larger than {@value #MAX_MAPPED_CHARS} bytes, so that a single file does not allocate a buffer of several gigabytes.
+ */
+public class ContentReader {
+
+    public static final long DEFAULT_MMAP_THRESHOLD = 16L * 1024 * 1024;
+
+    static final int MAPPED_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    static final int MAX_POOLED_CHARS = 32 * 1024 * 1024;
+
+    /**
+     * With UTF-8, a file never has more chars than bytes: this is the size of the largest buffer (256 MB of heap), in chars, and of the largest memory-mapped file, in bytes.
+     */
+    static final int MAX_MAPPED_CHARS = 4 * MAX_POOLED_CHARS;
+
+    private static final ThreadLocal<CharsetDecoder> DECODER = ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    private static final ThreadLocal<SoftReference<CharBuffer>> BUFFER = new ThreadLocal<>();
+
+    private ContentReader() {
+    }
+
+    /**
+     * @return the content of the file. When the file was memory-mapped, the text can be the pooled buffer of the current thread: it is only valid until the next read on the same thread.
+     */
+    public static Content read(Path file, long mmapThreshold) throws IOException {
+        return read(file, mmapThreshold, MAPPED_CHUNK_SIZE, MAX_POOLED_CHARS, MAX_MAPPED_CHARS);
+    }
+
+    static Content read(Path file, long mmapThreshold, int chunkSize, int maxPooledChars, int maxMappedChars) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < mmapThreshold && size <= Integer.MAX_VALUE - 8) {
+                return readArray(channel, (int) size);
+            }
+            if (size > maxMappedChars) {
+                throw new IOException("File is too large to be memory-mapped: " + size + " bytes, the limit is " + maxMappedChars + " bytes (a larger file is read into a byte array when the mmap-threshold is above its size)");
+            }
+            return new Content(decodeMapped(channel, (int) size, chunkSize, maxPooledChars), size);
+        }
+    }
+
+    /**
+     * Updates the digest with the content of the file, memory-mapped by chunks.
+     */
+    public static void digestMapped(Path file, MessageDigest digest) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAPPED_CHUNK_SIZE) {
+                digest.update(channel.map(MapMode.READ_ONLY, position, Math.min(MAPPED_CHUNK_SIZE, size - position)));
+            }
+        }
+    }
+
+    private static Content readArray(FileChannel channel, int size) throws IOException {
+        byte[] bytes = new byte[size];
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        while (in.hasRemaining() && channel.read(in) >= 0) {
+            // read until the end of the file
+        }
+        return new Content(new String(bytes, 0, in.position(), StandardCharsets.UTF_8), in.position());
+    }
+
+    private static CharBuffer decodeMapped(FileChannel channel, int size, int maxChunkSize, int maxPooledChars) throws IOException {
+        // With UTF-8, a file never has more chars than bytes:
+        CharBuffer out = (size <= maxPooledChars) ? pooledBuffer(size) : CharBuffer.allocate(size);
+        CharsetDecoder decoder = DECODER.get();
+        decoder.reset();
+        long position = 0;
+        while (position < size) {
+            long chunkSize = Math.min(maxChunkSize, size - position);
+            boolean endOfInput = position + chunkSize == size;
+            MappedByteBuffer in = channel.map(MapMode.READ_ONLY, position, chunkSize);
+            CoderResult result = decoder.decode(in, out, endOfInput);
+            if (result.isError() || result.isOverflow()) {
+                result.throwException();
+            }
+            // An incomplete sequence at the end of a chunk stays in the buffer, it is mapped again with the next chunk:
+            position += in.position();
+        }
+        decoder.decode(ByteBuffer.allocate(0), out, true);
+        decoder.flush(out);
+        out.flip();
+        return out;
+    }
+
+    private static CharBuffer pooledBuffer(int capacity) {
+        SoftReference<CharBuffer> reference = BUFFER.get();
+        CharBuffer buffer = (reference != null) ? reference.get() : null;
+        if (buffer == null || buffer.capacity() < capacity) {
+            buffer = CharBuffer.allocate(capacity);
+            BUFFER.set(new SoftReference<>(buffer));
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    public static class Content {
+        private final CharSequence text;
+        private final long byteCount;
+
+        public Content(CharSequence text, long byteCount) {
+            this.text = text;
+            this.byteCount = byteCount;
+        }
+
+        public CharSequence getText() {
+            return text;
+        }
+
+        public long getByteCount() {
+            return byteCount;
+        }
+    }
+}
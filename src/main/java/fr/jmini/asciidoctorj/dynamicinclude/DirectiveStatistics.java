@@ -0,0 +1,65 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import fr.jmini.asciidoctorj.dynamicinclude.DynamicIncludeEvent.Phase;
+
+/**
+ * Collects the statistics of one include directive. The counters can be updated concurrently when the files are processed in parallel.
+ */
+public class DirectiveStatistics {
+
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+    private final LongAdder readFileCount = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder xrefsFound = new LongAdder();
+    private final LongAdder xrefsRewritten = new LongAdder();
+
+    public DirectiveStatistics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    public void addPhaseNanos(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    /**
+     * Adds the time elapsed since {@code start} to the phase.
+     *
+     * @return the current {@link System#nanoTime()}, to be used as start of the next phase.
+     */
+    public long endPhase(Phase phase, long start) {
+        long now = System.nanoTime();
+        addPhaseNanos(phase, now - start);
+        return now;
+    }
+
+    public void fileRead(long bytes) {
+        readFileCount.increment();
+        bytesRead.add(bytes);
+    }
+
+    public void xrefFound(boolean rewritten) {
+        xrefsFound.increment();
+        if (rewritten) {
+            xrefsRewritten.increment();
+        }
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public DynamicIncludeEvent toEvent(String file, String target, Path dir, String logfile, LogfileFormat logfileFormat, long totalNanos, int fileCount) {
+        Map<Phase, Long> nanos = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            nanos.put(phase, phaseNanos[phase.ordinal()].sum());
+        }
+        return new DynamicIncludeEvent(file, target, dir, logfile, logfileFormat, totalNanos, nanos, fileCount, readFileCount.intValue(), bytesRead.sum(), xrefsFound.intValue(), xrefsRewritten.intValue());
+    }
+}
@@ -0,0 +1,149 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Statistics of one processed {@code include::dynamic:...[]} directive.
+ */
+public class DynamicIncludeEvent {
+
+    public enum Phase {
+        /**
+         * Directory walk and filtering of the found files.
+         */
+        FIND_FILES,
+        /**
+         * Ordering of the files.
+         */
+        SORT_FILES,
+        /**
+         * Reading of the files that were not found in the parsed file cache (cumulated over the files).
+         */
+        READ_FILES,
+        /**
+         * Search of the titles and computation of their anchors (cumulated over the files).
+         */
+        PARSE_FILES,
+        /**
+         * Computation of the level offsets and of the shifted anchors.
+         */
+        CREATE_FILE_HOLDERS,
+        /**
+         * Rewriting of the xref links (cumulated over the files).
+         */
+        REPLACE_XREFS,
+        /**
+         * Calls to the {@code push_include} method of the reader.
+         */
+        PUSH_INCLUDES
+    }
+
+    private String file;
+    private String target;
+    private Path dir;
+    private String logfile;
+    private LogfileFormat logfileFormat;
+    private long totalNanos;
+    private Map<Phase, Long> phaseNanos;
+    private int fileCount;
+    private int readFileCount;
+    private long bytesRead;
+    private int xrefsFound;
+    private int xrefsRewritten;
+
+    public DynamicIncludeEvent(String file, String target, Path dir, String logfile, LogfileFormat logfileFormat, long totalNanos, Map<Phase, Long> phaseNanos, int fileCount, int readFileCount, long bytesRead, int xrefsFound, int xrefsRewritten) {
+        this.file = file;
+        this.target = target;
+        this.dir = dir;
+        this.logfile = logfile;
+        this.logfileFormat = logfileFormat;
+        this.totalNanos = totalNanos;
+        this.phaseNanos = Collections.unmodifiableMap(phaseNanos);
+        this.fileCount = fileCount;
+        this.readFileCount = readFileCount;
+        this.bytesRead = bytesRead;
+        this.xrefsFound = xrefsFound;
+        this.xrefsRewritten = xrefsRewritten;
+    }
+
+    /**
+     * @return the file containing the directive, as given by the reader.
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * @return the target of the directive, including the {@code dynamic:} prefix.
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    /**
+     * @return the value of the {@code logfile} option or {@code null} when it is not set.
+     */
+    public String getLogfile() {
+        return logfile;
+    }
+
+    /**
+     * @return the value of the {@code logfile-format} option.
+     */
+    public LogfileFormat getLogfileFormat() {
+        return logfileFormat;
+    }
+
+    /**
+     * @return the duration of the whole directive processing, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return the duration of each phase, in nanoseconds. When the files are processed in parallel, the durations cumulated over the files can exceed the total duration.
+     */
+    public Map<Phase, Long> getPhaseNanos() {
+        return phaseNanos;
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos.getOrDefault(phase, 0L);
+    }
+
+    /**
+     * @return the number of included files.
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return the number of files read from the disk (the other files were found in the parsed file cache).
+     */
+    public int getReadFileCount() {
+        return readFileCount;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public int getXrefsFound() {
+        return xrefsFound;
+    }
+
+    /**
+     * @return the number of xref links that were modified.
+     */
+    public int getXrefsRewritten() {
+        return xrefsRewritten;
+    }
+}
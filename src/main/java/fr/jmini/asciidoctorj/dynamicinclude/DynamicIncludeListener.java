@@ -0,0 +1,13 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+/**
+ * Receives the statistics of each processed {@code include::dynamic:...[]} directive.
+ * <p>
+ * Implementations are found with {@link java.util.ServiceLoader} or set in the {@value DynamicIncludeProcessor#LISTENERS_CONFIG_KEY} entry of the processor configuration.
+ * <p>
+ * The listeners are called on the converting thread, after the content of the included files was pushed to the reader.
+ */
+public interface DynamicIncludeListener {
+
+    void directiveProcessed(DynamicIncludeEvent event);
+}
@@ -0,0 +1,240 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Typed and immutable values of the options of the dynamic include directive.
+ * <p>
+ * The options defined as document attributes ({@code dynamic-include-<option>}) are read from the {@link AttributeSnapshot} of the directive (an attribute entry can change a value between two directives), the options set on the directive itself are then applied with
+ * {@link #overlay(Consumer, Map)}. The numbers are checked with precompiled patterns.
+ * <p>
+ * The document options are cached by content (raw values, {@code idprefix} and {@code idseparator}), so that the directives of a document share the same instance as long as no attribute entry changes them. Options with invalid values are not cached, their warnings are logged for each directive.
+ */
+public class DynamicIncludeOptions {
+
+    public static final String DOCUMENT_ATTRIBUTE_PREFIX = "dynamic-include-";
+
+    public static final List<String> OPTION_NAMES = Collections.unmodifiableList(Arrays.asList(
+            "suffixes",
+            "external-xref-as-text",
+            "logfile",
+            "logfile-format",
+            "level-offset-shifting",
+            "display-view-source",
+            "view-source-link-pattern",
+            "view-source-link-text",
+            "parallel",
+            "metadata-index",
+            "mmap-threshold",
+            "logfile-statistics",
+            "warn-unresolved-xrefs"));
+
+    /**
+     * Maximum number of cached document options, the cache is cleared when it is reached (a build usually defines only a few different sets of options).
+     */
+    static final int DOCUMENT_OPTIONS_CACHE_SIZE = 64;
+
+    private static final Map<DocumentKey, DynamicIncludeOptions> DOCUMENT_OPTIONS = new ConcurrentHashMap<>();
+
+    private final Map<String, String> values;
+    private final String idprefix;
+    private final String idseparator;
+    private final List<String> suffixes;
+    private final boolean externalXrefAsText;
+    private final String logfile;
+    private final LogfileFormat logfileFormat;
+    private final int levelOffsetShifting;
+    private final boolean displayViewSourceLink;
+    private final String viewSourceLinkPattern;
+    private final String viewSourceLinkText;
+    private final boolean parallel;
+    private final String metadataIndex;
+    private final long mmapThreshold;
+    private final boolean logfileStatistics;
+    private final boolean warnUnresolvedXrefs;
+
+    /**
+     * @param values
+     *            the raw values of the options, by option name (without the {@code dynamic-include-} prefix). A present key enables a flag option, whatever its value.
+     */
+    public DynamicIncludeOptions(Consumer<String> logger, Map<String, String> values, String idprefix, String idseparator) {
+        this.values = Collections.unmodifiableMap(new HashMap<>(values));
+        this.idprefix = idprefix;
+        this.idseparator = idseparator;
+        this.suffixes = valueToList(values.get("suffixes"));
+        this.externalXrefAsText = values.containsKey("external-xref-as-text");
+        this.logfile = values.get("logfile");
+        this.logfileFormat = DynamicIncludeProcessor.convertLogfileFormat(logger, values.get("logfile-format"));
+        this.levelOffsetShifting = DynamicIncludeProcessor.convertLevelOffsetShifting(logger, values.get("level-offset-shifting"));
+        this.displayViewSourceLink = values.containsKey("display-view-source");
+        this.viewSourceLinkPattern = values.getOrDefault("view-source-link-pattern", "#");
+        this.viewSourceLinkText = values.getOrDefault("view-source-link-text", "view source");
+        this.parallel = values.containsKey("parallel");
+        this.metadataIndex = values.get("metadata-index");
+        this.mmapThreshold = DynamicIncludeProcessor.convertMmapThreshold(logger, values.get("mmap-threshold"));
+        this.logfileStatistics = values.containsKey("logfile-statistics");
+        this.warnUnresolvedXrefs = values.containsKey("warn-unresolved-xrefs");
+    }
+
+    /**
+     * @return the options defined by the attributes of the document.
+     */
+    public static DynamicIncludeOptions forDocument(Consumer<String> logger, AttributeSnapshot documentAttributes) {
+        DocumentKey key = new DocumentKey(documentValues(documentAttributes), documentAttributes.getAttribute("idprefix", "_"), documentAttributes.getAttribute("idseparator", "_"));
+        DynamicIncludeOptions cached = DOCUMENT_OPTIONS.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> warnings = new ArrayList<>();
+        DynamicIncludeOptions options = new DynamicIncludeOptions(warnings::add, key.values, key.idprefix, key.idseparator);
+        if (warnings.isEmpty()) {
+            if (DOCUMENT_OPTIONS.size() >= DOCUMENT_OPTIONS_CACHE_SIZE) {
+                DOCUMENT_OPTIONS.clear();
+            }
+            DOCUMENT_OPTIONS.putIfAbsent(key, options);
+        } else {
+            warnings.forEach(logger);
+        }
+        return options;
+    }
+
+    static void clearDocumentOptionsCache() {
+        DOCUMENT_OPTIONS.clear();
+    }
+
+    static Map<String, String> documentValues(AttributeSnapshot documentAttributes) {
+        Map<String, String> values = new HashMap<>();
+        for (String name : OPTION_NAMES) {
+            documentAttributes.apply(DOCUMENT_ATTRIBUTE_PREFIX + name)
+                    .ifPresent(value -> values.put(name, value));
+        }
+        return values;
+    }
+
+    /**
+     * @return these options with the values set on the directive (by option name) taking precedence, or this instance when the directive does not set any option.
+     */
+    public DynamicIncludeOptions overlay(Consumer<String> logger, Map<String, Object> attributes) {
+        Map<String, String> overlaid = null;
+        for (String name : OPTION_NAMES) {
+            if (attributes.containsKey(name)) {
+                if (overlaid == null) {
+                    overlaid = new HashMap<>(values);
+                }
+                overlaid.put(name, Objects.toString(attributes.get(name), ""));
+            }
+        }
+        if (overlaid == null) {
+            return this;
+        }
+        return new DynamicIncludeOptions(logger, overlaid, idprefix, idseparator);
+    }
+
+    private static List<String> valueToList(String string) {
+        if (string != null) {
+            return Collections.unmodifiableList(Arrays.asList(string.split(":")));
+        }
+        return Collections.emptyList();
+    }
+
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    public String getIdprefix() {
+        return idprefix;
+    }
+
+    public String getIdseparator() {
+        return idseparator;
+    }
+
+    public List<String> getSuffixes() {
+        return suffixes;
+    }
+
+    public boolean isExternalXrefAsText() {
+        return externalXrefAsText;
+    }
+
+    public String getLogfile() {
+        return logfile;
+    }
+
+    public LogfileFormat getLogfileFormat() {
+        return logfileFormat;
+    }
+
+    public int getLevelOffsetShifting() {
+        return levelOffsetShifting;
+    }
+
+    public boolean isDisplayViewSourceLink() {
+        return displayViewSourceLink;
+    }
+
+    public String getViewSourceLinkPattern() {
+        return viewSourceLinkPattern;
+    }
+
+    public String getViewSourceLinkText() {
+        return viewSourceLinkText;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public String getMetadataIndex() {
+        return metadataIndex;
+    }
+
+    public long getMmapThreshold() {
+        return mmapThreshold;
+    }
+
+    public boolean isLogfileStatistics() {
+        return logfileStatistics;
+    }
+
+    public boolean isWarnUnresolvedXrefs() {
+        return warnUnresolvedXrefs;
+    }
+
+    private static final class DocumentKey {
+        private final Map<String, String> values;
+        private final String idprefix;
+        private final String idseparator;
+
+        DocumentKey(Map<String, String> values, String idprefix, String idseparator) {
+            this.values = values;
+            this.idprefix = idprefix;
+            this.idseparator = idseparator;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(values, idprefix, idseparator);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DocumentKey)) {
+                return false;
+            }
+            DocumentKey other = (DocumentKey) obj;
+            return Objects.equals(values, other.values) && Objects.equals(idprefix, other.idprefix) && Objects.equals(idseparator, other.idseparator);
+        }
+    }
+}
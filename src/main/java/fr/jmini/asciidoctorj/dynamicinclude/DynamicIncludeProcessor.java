@@ -1,26 +1,28 @@
 package fr.jmini.asciidoctorj.dynamicinclude;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.asciidoctor.ast.Document;
 import org.asciidoctor.extension.IncludeProcessor;
@@ -28,6 +30,7 @@ import org.asciidoctor.extension.PreprocessorReader;
 import org.asciidoctor.log.LogRecord;
 import org.asciidoctor.log.Severity;
 
+import fr.jmini.asciidoctorj.dynamicinclude.DynamicIncludeEvent.Phase;
 import fr.jmini.asciidoctorj.dynamicinclude.XrefHolder.XrefHolderType;
 import fr.jmini.asciidoctorj.dynamicinclude.path.PathUtil;
 import fr.jmini.utils.substringfinder.Range;
@@ -36,19 +39,44 @@ import fr.jmini.utils.substringfinder.SubstringFinder;
 public class DynamicIncludeProcessor extends IncludeProcessor {
     private static final String PREFIX = "dynamic:";
 
-    private static final Pattern TITLE_REGEX = Pattern.compile("^(\\/?\\/? *)(={1,5})(.+)", Pattern.MULTILINE);
-
     private static final SubstringFinder DOUBLE_ANGLED_BRACKET_FINDER = SubstringFinder.define("<<", ">>");
     private static final SubstringFinder SINGLE_BRACKET_FINDER = SubstringFinder.define("[", "]");
     private static final SubstringFinder DOUBLE_BRACKET_FINDER = SubstringFinder.define("[[", "]]");
     private static final SubstringFinder SINGLE_CURLY_BRACKET_FINDER = SubstringFinder.define("{", "}");
 
+    private static final Pattern LEVEL_OFFSET_SHIFTING_PATTERN = Pattern.compile("\\-?\\+?[0-9]+");
+    private static final Pattern SIZE_PATTERN = Pattern.compile("\\+?[0-9]+");
+
+    private static final ParsedFileCache PARSED_FILE_CACHE = new ParsedFileCache(ParsedFileCache.DEFAULT_MAX_WEIGHT);
+
+    /**
+     * Key of the processor configuration entry containing additional {@link DynamicIncludeListener}s: a listener instance, a fully qualified class name or a collection of them.
+     */
+    public static final String LISTENERS_CONFIG_KEY = "listeners";
+
+    /**
+     * Key of the processor configuration entry containing the memory budget in megabytes of the {@link ParsedFileCache}. The cache is shared by all the processors of the JVM, when the entry is not set the {@value #PARSED_FILE_CACHE_SIZE_PROPERTY} system property is used.
+     */
+    public static final String PARSED_FILE_CACHE_SIZE_CONFIG_KEY = "parsed-file-cache-size";
+
+    public static final String PARSED_FILE_CACHE_SIZE_PROPERTY = "dynamic-include.parsed-file-cache-size";
+
+    private static final DynamicIncludeListener LOGFILE_STATISTICS_LISTENER = new LogfileStatisticsListener();
+
+    private final List<DynamicIncludeListener> listeners;
+    private final String parsedFileCacheSize;
+    private final AtomicBoolean parsedFileCacheConfigured = new AtomicBoolean(false);
+
     public DynamicIncludeProcessor() {
         super();
+        listeners = loadListeners(Collections.emptyMap());
+        parsedFileCacheSize = findParsedFileCacheSize(Collections.emptyMap());
     }
 
     public DynamicIncludeProcessor(Map<String, Object> config) {
         super(config);
+        listeners = loadListeners(config);
+        parsedFileCacheSize = findParsedFileCacheSize(config);
     }
 
     @Override
@@ -58,150 +86,346 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
 
     @Override
     public void process(Document document, PreprocessorReader reader, String target, Map<String, Object> attributes) {
+        Object directiveEvent = FlightRecorderEvents.INSTANCE.beginDirective();
+        long processStart = System.nanoTime();
+        DirectiveStatistics statistics = new DirectiveStatistics();
         Consumer<String> logger = (String message) -> log(new LogRecord(Severity.WARN, message));
         Path dir = Paths.get(reader.getDir());
         Path currentFile = dir.resolve(reader.getFile())
                 .toAbsolutePath();
         String glob = target.substring(PREFIX.length());
+        AttributeSnapshot documentAttributes = AttributeSnapshot.of(document);
+
+        DynamicIncludeOptions options = DynamicIncludeOptions.forDocument(logger, documentAttributes)
+                .overlay(logger, attributes);
+        List<String> suffixes = options.getSuffixes();
+        boolean externalXrefAsText = options.isExternalXrefAsText();
+        String logfile = options.getLogfile();
+        LogfileFormat logfileFormat = options.getLogfileFormat();
+        int levelOffsetShifting = options.getLevelOffsetShifting();
+        boolean displayViewSourceLink = options.isDisplayViewSourceLink();
+        String viewSourceLinkPattern = options.getViewSourceLinkPattern();
+        String viewSourceLinkText = options.getViewSourceLinkText();
+        boolean parallel = options.isParallel();
+        if (parsedFileCacheSize != null && parsedFileCacheConfigured.compareAndSet(false, true)) {
+            // process-level configuration, applied once (warnings are logged with the first directive):
+            PARSED_FILE_CACHE.setMaxWeight(convertParsedFileCacheSize(logger, parsedFileCacheSize));
+        }
+        MetadataIndex metadataIndex = (options.getMetadataIndex() != null) ? MetadataIndex.forFile(Paths.get(options.getMetadataIndex())) : null;
+        long mmapThreshold = options.getMmapThreshold();
+        boolean logfileStatistics = options.isLogfileStatistics();
+        // The warnings of the content pass are logged from the threads of the common pool when the files are processed in parallel:
+        Consumer<String> contentLogger;
+        if (parallel) {
+            contentLogger = (String message) -> {
+                synchronized (this) {
+                    logger.accept(message);
+                }
+            };
+        } else {
+            contentLogger = logger;
+        }
+        Consumer<String> unresolvedXrefLogger = (options.isWarnUnresolvedXrefs()) ? contentLogger : null;
 
-        String suffixesText = readKey(document, attributes, "suffixes", "dynamic-include-suffixes");
-        List<String> suffixes = valueToList(suffixesText);
-
-        boolean externalXrefAsText = hasKey(document, attributes, "external-xref-as-text", "dynamic-include-external-xref-as-text");
-
-        String logfile = readKey(document, attributes, "logfile", "dynamic-include-logfile");
-
-        String levelOffsetShiftingText = readKey(document, attributes, "level-offset-shifting", "dynamic-include-level-offset-shifting");
-        int levelOffsetShifting = convertLevelOffsetShifting(logger, levelOffsetShiftingText);
-
-        boolean displayViewSourceLink = hasKey(document, attributes, "display-view-source", "dynamic-include-display-view-source");
-        String viewSourceLinkPattern = readKey(document, attributes, "view-source-link-pattern", "dynamic-include-view-source-link-pattern", "#");
-        String viewSourceLinkText = readKey(document, attributes, "view-source-link-text", "dynamic-include-view-source-link-text", "view source");
-
-        Function<String, Optional<String>> attributeResolver = (String key) -> getDocumentAttribute(document, key);
+        // The snapshot is immutable, it can be used concurrently when the files are processed in parallel:
+        Function<String, Optional<String>> attributeResolver = documentAttributes;
+        ViewSourceLinkTemplate viewSourceLinkTemplate = (displayViewSourceLink) ? ViewSourceLinkTemplate.compile(viewSourceLinkPattern, attributeResolver) : null;
 
+        Object directoryWalkEvent = FlightRecorderEvents.INSTANCE.beginDirectoryWalk();
+        long start = System.nanoTime();
         List<Path> files = PathUtil.findFiles(dir, glob, suffixes);
         List<Path> filteredFile = PathUtil.filterCurrentFile(files, currentFile);
+        start = statistics.endPhase(Phase.FIND_FILES, start);
+        FlightRecorderEvents.INSTANCE.commitDirectoryWalk(directoryWalkEvent, glob, dir, filteredFile.size());
         List<Path> sortedFiles = PathUtil.sortFiles(logger, filteredFile, suffixes);
+        statistics.endPhase(Phase.SORT_FILES, start);
 
-        String idprefix = document.getAttribute("idprefix", "_")
-                .toString();
-        String idseparator = document.getAttribute("idseparator", "_")
-                .toString();
-        List<String> globalExistingAnchors = new ArrayList<>();
-        List<FileHolder> list = sortedFiles.stream()
+        String idprefix = options.getIdprefix();
+        String idseparator = options.getIdseparator();
+        Function<Path, ParsedFileHolder> loader = p -> PARSED_FILE_CACHE.get(p, idprefix, idseparator,
+                () -> (metadataIndex != null) ? metadataIndex.parseFile(p, idprefix, idseparator, mmapThreshold, statistics) : parseFile(p, idprefix, idseparator, mmapThreshold, statistics));
+
+        // Metadata pass: only the titles and the anchors of the files are kept (the files that are unchanged in the metadata index are not even read), the content is loaded again (from the parsed file cache or by reading the file without parsing it) when the file is pushed.
+        List<ParsedFileHolder> parsedFiles = (parallel ? sortedFiles.parallelStream() : sortedFiles.stream())
+                .map(p -> loader.apply(p)
+                        .withoutContent())
+                .collect(Collectors.toList());
+        // Global anchors are assigned sequentially, in the order of the sorted files:
+        start = System.nanoTime();
+        AnchorRegistry globalExistingAnchors = new AnchorRegistry();
+        List<FileHolder> list = parsedFiles.stream()
                 .map(p -> createFileHolder(dir, p, idprefix, idseparator, levelOffsetShifting, globalExistingAnchors))
                 .collect(Collectors.toList());
+        FileHolderIndex index = FileHolderIndex.of(list);
+        statistics.endPhase(Phase.CREATE_FILE_HOLDERS, start);
 
-        if (logfile != null) {
-            StringBuilder sb = new StringBuilder();
+        LogfileWriter logfileWriter = (logfile != null) ? LogfileWriter.forFile(Paths.get(logfile)) : null;
+        if (logfileWriter != null) {
+            logfileWriter.append(createLogfileRecord(logfileFormat, reader.getFile(), target, levelOffsetShifting, list));
+        }
 
-            sb.append("# File: ");
-            sb.append(reader.getFile());
-            sb.append("\n");
+        // Content pass: the files are loaded, rewritten and pushed from the last one (the included content is a stack), by batches of one file in serial mode and of one file per thread of the common pool in parallel mode,
+        // so that only the contents of one batch are referenced at a time.
+        int batchSize = (parallel) ? Math.max(1, ForkJoinPool.getCommonPoolParallelism()) : 1;
+        for (int batchEnd = list.size(); batchEnd > 0; batchEnd -= batchSize) {
+            IntStream batch = IntStream.range(Math.max(0, batchEnd - batchSize), batchEnd);
+            List<IncludeHolder> includes = (parallel ? batch.parallel() : batch)
+                    .mapToObj(i -> createIncludeHolder(list, index, i, loadContent(contentLogger, parsedFiles.get(i), idprefix, idseparator, mmapThreshold, statistics), dir, externalXrefAsText, viewSourceLinkTemplate, viewSourceLinkText,
+                            attributeResolver, unresolvedXrefLogger, statistics))
+                    .collect(Collectors.toList());
+            start = System.nanoTime();
+            for (int i = includes.size() - 1; i >= 0; i--) {
+                pushInclude(reader, includes.get(i), attributes);
+            }
+            statistics.endPhase(Phase.PUSH_INCLUDES, start);
+        }
+        if (metadataIndex != null) {
+            metadataIndex.save();
+        }
 
-            sb.append("# Target: ");
-            sb.append(target);
-            sb.append("\n");
+        FlightRecorderEvents.INSTANCE.commitDirective(directiveEvent, glob, dir, list.size(), statistics.getBytesRead());
 
-            sb.append("# level-offset-shifting: ");
-            sb.append(levelOffsetShifting);
-            sb.append("\n");
+        if (!listeners.isEmpty() || logfileStatistics) {
+            DynamicIncludeEvent event = statistics.toEvent(reader.getFile(), target, dir, logfile, logfileFormat, System.nanoTime() - processStart, list.size());
+            if (logfileStatistics) {
+                LOGFILE_STATISTICS_LISTENER.directiveProcessed(event);
+            }
+            for (DynamicIncludeListener listener : listeners) {
+                listener.directiveProcessed(event);
+            }
+        }
+        if (logfileWriter != null) {
+            // The records of the directive (including the statistics record) are written in a single batch:
+            logfileWriter.flush();
+        }
+    }
 
-            list.forEach(h -> sb.append(h.getKey())
-                    .append(" (leveloffset: ")
-                    .append(outputOffset(h.getLevelOffset()))
-                    .append(")")
-                    .append("\n"));
-            sb.append("\n");
+    static List<DynamicIncludeListener> loadListeners(Map<String, Object> config) {
+        List<DynamicIncludeListener> result = new ArrayList<>();
+        for (DynamicIncludeListener listener : ServiceLoader.load(DynamicIncludeListener.class, DynamicIncludeProcessor.class.getClassLoader())) {
+            result.add(listener);
+        }
+        Object value = config.get(LISTENERS_CONFIG_KEY);
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                result.add(toListener(element));
+            }
+        } else if (value != null) {
+            result.add(toListener(value));
+        }
+        return Collections.unmodifiableList(result);
+    }
 
-            Path path = Paths.get(logfile);
-            try {
-                if (Files.notExists(path)) {
-                    Files.createDirectories(path.getParent());
-                    Files.createFile(path);
+    /**
+     * @return the budget of the parsed file cache set in the configuration or as system property, {@code null} when it is not set.
+     */
+    static String findParsedFileCacheSize(Map<String, Object> config) {
+        Object value = config.get(PARSED_FILE_CACHE_SIZE_CONFIG_KEY);
+        if (value != null) {
+            return value.toString();
+        }
+        return System.getProperty(PARSED_FILE_CACHE_SIZE_PROPERTY);
+    }
+
+    private static DynamicIncludeListener toListener(Object value) {
+        if (value instanceof DynamicIncludeListener) {
+            return (DynamicIncludeListener) value;
+        }
+        String className = value.toString();
+        try {
+            Class<?> listenerClass = Class.forName(className, true, DynamicIncludeProcessor.class.getClassLoader());
+            return (DynamicIncludeListener) listenerClass.getConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Could not create the listener: " + className, e);
+        }
+    }
+
+    static String createLogfileRecord(LogfileFormat logfileFormat, String file, String target, int levelOffsetShifting, List<FileHolder> list) {
+        StringBuilder sb = new StringBuilder();
+        if (logfileFormat == LogfileFormat.JSON_LINES) {
+            sb.append("{\"type\":\"directive\",\"file\":");
+            LogfileWriter.appendJsonString(sb, file);
+            sb.append(",\"target\":");
+            LogfileWriter.appendJsonString(sb, target);
+            sb.append(",\"levelOffsetShifting\":");
+            sb.append(levelOffsetShifting);
+            sb.append(",\"pages\":[");
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    sb.append(",");
                 }
-                Files.write(path, sb.toString()
-                        .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                e.printStackTrace();
+                sb.append("{\"key\":");
+                LogfileWriter.appendJsonString(sb, list.get(i)
+                        .getKey());
+                sb.append(",\"levelOffset\":");
+                sb.append(list.get(i)
+                        .getLevelOffset());
+                sb.append("}");
             }
+            sb.append("]}\n");
+            return sb.toString();
         }
 
-        for (int i = list.size() - 1; i >= 0; i--) {
-            FileHolder item = list.get(i);
-            TitleHolder title = item.getFirstTitle();
-            Path path = item.getPath();
-            File file = path.toFile();
+        sb.append("# File: ");
+        sb.append(file);
+        sb.append("\n");
 
-            boolean previousTitleEquals = false;
-            if (i > 0) {
-                FileHolder previousItem = list.get(i - 1);
-                TitleHolder previousTitle = previousItem.getFirstTitle();
-                previousTitleEquals = (title.getTitleType() == TitleType.PRESENT)
-                        && Objects.equals(previousTitle.getTitleType(), title.getTitleType())
-                        && Objects.equals(previousTitle.getTitleLevel(), title.getTitleLevel())
-                        && Objects.equals(previousTitle.getTitle(), title.getTitle());
+        sb.append("# Target: ");
+        sb.append(target);
+        sb.append("\n");
+
+        sb.append("# level-offset-shifting: ");
+        sb.append(levelOffsetShifting);
+        sb.append("\n");
+
+        list.forEach(h -> sb.append(h.getKey())
+                .append(" (leveloffset: ")
+                .append(outputOffset(h.getLevelOffset()))
+                .append(")")
+                .append("\n"));
+        sb.append("\n");
+        return sb.toString();
+    }
+
+    /**
+     * Pushes the content of one included file to the reader. Subclasses can override this method to observe the calls (the benchmarks count them and measure their duration).
+     */
+    protected void pushInclude(PreprocessorReader reader, IncludeHolder include, Map<String, Object> attributes) {
+        Path path = include.getPath();
+        reader.push_include(include.getContent(), path.toFile()
+                .getName(), path.toString(), include.getLineNumber(), attributes);
+    }
+
+    /**
+     * Loads the content of a file for the content pass: from the parsed file cache when the file is still cached, otherwise the file is read again without being parsed. When the content does not correspond to the metadata computed during the metadata pass (the file was modified in
+     * between: its size, modification time or content length changed), a warning is logged and the titles are searched again in the new content, so that the positions used to include it are valid.
+     * <p>
+     * The file is counted as read (statistics and flight recorder events) only when the metadata pass did not read it, because its metadata was found in the {@link MetadataIndex}.
+     */
+    static ParsedFileHolder loadContent(Consumer<String> logger, ParsedFileHolder metadata, String idprefix, String idseparator, long mmapThreshold, DirectiveStatistics statistics) {
+        Path path = metadata.getPath();
+        int expectedLength = metadata.getContentLength();
+        ParsedFileHolder source = PARSED_FILE_CACHE.getIfPresent(path, idprefix, idseparator);
+        if (source == null) {
+            BasicFileAttributes attributes = readAttributes(path);
+            Object fileReadEvent = (metadata.isContentRead()) ? null : FlightRecorderEvents.INSTANCE.beginFileRead();
+            long start = System.nanoTime();
+            ContentReader.Content read = readContent(path, mmapThreshold);
+            String content = read.getText()
+                    .toString();
+            if (!metadata.isContentRead()) {
+                FlightRecorderEvents.INSTANCE.commitFileRead(fileReadEvent, path, read.getByteCount());
+                statistics.fileRead(read.getByteCount());
             }
+            start = statistics.endPhase(Phase.READ_FILES, start);
+            long size = attributes.size();
+            long lastModifiedTime = attributes.lastModifiedTime()
+                    .toMillis();
+            if (content.length() == expectedLength && metadata.isFileVersion(size, lastModifiedTime)) {
+                return new ParsedFileHolder(path, content, metadata.getFirstTitle(), metadata.getTitleAnchorMap(), metadata.getAnchors(), null).withFileVersion(size, lastModifiedTime);
+            }
+            source = parseContent(path, content, idprefix, idseparator).withFileVersion(size, lastModifiedTime);
+            statistics.endPhase(Phase.PARSE_FILES, start);
+        } else if (source.getContent()
+                .length() == expectedLength && metadata.isFileVersion(source.getSize(), source.getLastModifiedTime())) {
+            return source;
+        }
+        logger.accept("file '" + path + "' was modified while the include directive was processed, the titles of its new content are used but the links to its anchors might be wrong");
+        return source;
+    }
 
-            int splitIndex = (previousTitleEquals) ? title.getTitleEnd() : title.getTitleStart();
-            String header = item.getContent()
-                    .substring(0, splitIndex);
-            int lineNumber = countLines(header);
+    private static IncludeHolder createIncludeHolder(List<FileHolder> list, FileHolderIndex index, int i, ParsedFileHolder source, Path dir, boolean externalXrefAsText, ViewSourceLinkTemplate viewSourceLinkTemplate, String viewSourceLinkText,
+            Function<String, Optional<String>> attributeResolver, Consumer<String> unresolvedXrefLogger, DirectiveStatistics statistics) {
+        FileHolder item = list.get(i);
+        TitleHolder title = item.getFirstTitle();
+        Path path = item.getPath();
+
+        boolean previousTitleEquals = false;
+        if (i > 0) {
+            FileHolder previousItem = list.get(i - 1);
+            TitleHolder previousTitle = previousItem.getFirstTitle();
+            previousTitleEquals = (title.getTitleType() == TitleType.PRESENT)
+                    && Objects.equals(previousTitle.getTitleType(), title.getTitleType())
+                    && Objects.equals(previousTitle.getTitleLevel(), title.getTitleLevel())
+                    && Objects.equals(previousTitle.getTitle(), title.getTitle());
+        }
 
-            StringBuilder sb = new StringBuilder();
+        // The include text is assembled in a single builder: preamble, content after the split index (with the rewritten xref links) and closing lines.
+        // The positions of the title are taken from the loaded content, they differ from the metadata only when the file was modified since the metadata pass.
+        String content = source.getContent();
+        TitleHolder sourceTitle = source.getFirstTitle();
+        int splitIndex = 0;
+        if (sourceTitle != null) {
+            splitIndex = (previousTitleEquals) ? sourceTitle.getTitleEnd() : sourceTitle.getTitleStart();
+        }
+        int lineNumber = source.getLineNumber(splitIndex);
 
-            // Add a comment line at the top of the included document, to stay compatible with all asciidoctor versions.
-            // Workaround explained here: https://github.com/asciidoctor/asciidoctor/issues/3875
-            sb.append("//content of " + path + "\n");
-            sb.append("\n");
-            lineNumber = lineNumber - 2;
+        StringBuilder sb = new StringBuilder(content.length() - splitIndex + 256);
 
-            if (displayViewSourceLink) {
-                String viewSourceUrl = resolveAttributesInViewSourceLinkPattern(viewSourceLinkPattern, path, attributeResolver);
+        // Add a comment line at the top of the included document, to stay compatible with all asciidoctor versions.
+        // Workaround explained here: https://github.com/asciidoctor/asciidoctor/issues/3875
+        sb.append("//content of " + path + "\n");
+        sb.append("\n");
+        lineNumber = lineNumber - 2;
 
-                lineNumber = lineNumber - 3;
-                sb.append("\n");
-                sb.append("[.dynamic-include-view-source]\n");
-                sb.append("[ link:" + viewSourceUrl + "[" + viewSourceLinkText + "] ]\n");
-            }
+        if (viewSourceLinkTemplate != null) {
+            String viewSourceUrl = viewSourceLinkTemplate.render(path);
 
-            if (item.getLevelOffset() != 0) {
-                sb.append("\n");
-                sb.append(":leveloffset: " + outputOffset(item.getLevelOffset()) + "\n");
-                sb.append("\n");
-                lineNumber = lineNumber - 3;
-            }
-            if (!previousTitleEquals) {
-                if (title.getTitleType() == TitleType.PRESENT) {
-                    sb.append("\n");
-                    lineNumber = lineNumber - 1;
-                } else {
-                    sb.append("[#" + title.getTitleId() + "]\n");
-                    lineNumber = lineNumber - 1;
-                }
-            }
+            lineNumber = lineNumber - 3;
+            sb.append("\n");
+            sb.append("[.dynamic-include-view-source]\n");
+            sb.append("[ link:" + viewSourceUrl + "[" + viewSourceLinkText + "] ]\n");
+        }
 
-            sb.append(item.getContent()
-                    .substring(splitIndex));
-            if (item.getLevelOffset() != 0) {
-                sb.append("\n");
+        if (item.getLevelOffset() != 0) {
+            sb.append("\n");
+            sb.append(":leveloffset: " + outputOffset(item.getLevelOffset()) + "\n");
+            sb.append("\n");
+            lineNumber = lineNumber - 3;
+        }
+        if (!previousTitleEquals) {
+            if (title.getTitleType() == TitleType.PRESENT) {
                 sb.append("\n");
-                sb.append(":leveloffset: " + outputOffset(-1 * item.getLevelOffset()) + "\n");
+                lineNumber = lineNumber - 1;
+            } else {
+                sb.append("[#" + title.getTitleId() + "]\n");
+                lineNumber = lineNumber - 1;
             }
+        }
 
-            String content = sb.toString();
-            content = replaceXrefDoubleAngledBracketLinks(content, list, dir, item, externalXrefAsText, attributeResolver);
-            content = replaceXrefInlineLinks(content, list, dir, item, externalXrefAsText, attributeResolver);
+        Object xrefRewriteEvent = FlightRecorderEvents.INSTANCE.beginXrefRewrite();
+        long start = System.nanoTime();
+        int bodyStart = sb.length();
+        appendXrefLinks(sb, content, splitIndex, index, dir, item, externalXrefAsText, attributeResolver, unresolvedXrefLogger, source.getLineIndex(), statistics);
+        statistics.endPhase(Phase.REPLACE_XREFS, start);
+        FlightRecorderEvents.INSTANCE.commitXrefRewrite(xrefRewriteEvent, path, sb.length() - bodyStart);
 
-            reader.push_include(content, file.getName(), path.toString(), lineNumber, attributes);
+        if (item.getLevelOffset() != 0) {
+            sb.append("\n");
+            sb.append("\n");
+            sb.append(":leveloffset: " + outputOffset(-1 * item.getLevelOffset()) + "\n");
         }
+
+        return new IncludeHolder(path, sb.toString(), lineNumber);
+    }
+
+    static LogfileFormat convertLogfileFormat(Consumer<String> logger, String logfileFormatText) {
+        if (logfileFormatText == null || "text".equals(logfileFormatText)) {
+            return LogfileFormat.TEXT;
+        }
+        if ("json-lines".equals(logfileFormatText) || "jsonl".equals(logfileFormatText)) {
+            return LogfileFormat.JSON_LINES;
+        }
+        logger.accept("logfile-format value '" + logfileFormatText + "' is not supported (expected 'text' or 'json-lines'), using 'text' as fallback");
+        return LogfileFormat.TEXT;
     }
 
     static int convertLevelOffsetShifting(Consumer<String> logger, String levelOffsetShiftingText) {
         int levelOffsetShifting;
         if (levelOffsetShiftingText != null) {
-            if (levelOffsetShiftingText.matches("\\-?\\+?[0-9]+")) {
+            if (LEVEL_OFFSET_SHIFTING_PATTERN.matcher(levelOffsetShiftingText)
+                    .matches()) {
                 levelOffsetShifting = Integer.parseInt(levelOffsetShiftingText);
             } else {
                 logger.accept("level-offset-shifting value '" + levelOffsetShiftingText + "' is not a valid number, using 1 as fallback");
@@ -213,100 +437,150 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
         return levelOffsetShifting;
     }
 
-    static String outputOffset(int offset) {
-        if (offset > 0) {
-            return "+" + offset;
+    static long convertMmapThreshold(Consumer<String> logger, String mmapThresholdText) {
+        if (mmapThresholdText == null) {
+            return ContentReader.DEFAULT_MMAP_THRESHOLD;
         }
-        return "" + offset;
-    }
-
-    private String readKey(Document document, Map<String, Object> attributes, String includeKey, String documentKey) {
-        return readKey(document, attributes, includeKey, documentKey, null);
+        long mmapThreshold = megabytesToBytes(mmapThresholdText);
+        if (mmapThreshold >= 0) {
+            return mmapThreshold;
+        }
+        logger.accept("mmap-threshold value '" + mmapThresholdText + "' is not a valid number, using " + (ContentReader.DEFAULT_MMAP_THRESHOLD / 1024 / 1024) + " as fallback");
+        return ContentReader.DEFAULT_MMAP_THRESHOLD;
     }
 
-    private String readKey(Document document, Map<String, Object> attributes, String includeKey, String documentKey, String defaultValue) {
-        if (attributes.containsKey(includeKey)) {
-            return attributes.get(includeKey)
-                    .toString();
-        } else {
-            Optional<String> documentAttribute = getDocumentAttribute(document, documentKey);
-            if (documentAttribute.isPresent()) {
-                return documentAttribute.get();
-            }
+    static long convertParsedFileCacheSize(Consumer<String> logger, String parsedFileCacheSizeText) {
+        long parsedFileCacheSize = megabytesToBytes(parsedFileCacheSizeText);
+        if (parsedFileCacheSize >= 0) {
+            return parsedFileCacheSize;
         }
-        return defaultValue;
+        logger.accept("parsed-file-cache-size value '" + parsedFileCacheSizeText + "' is not a valid number, using " + (ParsedFileCache.DEFAULT_MAX_WEIGHT / 1024 / 1024) + " as fallback");
+        return ParsedFileCache.DEFAULT_MAX_WEIGHT;
     }
 
-    private static List<String> valueToList(String string) {
-        if (string != null) {
-            return Arrays.asList(string.split(":"));
+    /**
+     * @return the number of bytes of a size in megabytes, or {@code -1} when the value is not a valid number or is too large.
+     */
+    private static long megabytesToBytes(String megabytesText) {
+        if (!SIZE_PATTERN.matcher(megabytesText)
+                .matches()) {
+            return -1;
+        }
+        try {
+            return Math.multiplyExact(Long.parseLong(megabytesText), 1024L * 1024);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return -1;
         }
-        return Collections.emptyList();
     }
 
-    private Optional<String> getDocumentAttribute(Document document, String key) {
-        if (document.hasAttribute(key)) {
-            return Optional.ofNullable(document.getAttribute(key)
-                    .toString());
-        }
-        return Optional.empty();
+    /**
+     * @return the cache of the parsed files shared by all the include directives.
+     */
+    public static ParsedFileCache getParsedFileCache() {
+        return PARSED_FILE_CACHE;
     }
 
-    private boolean hasKey(Document document, Map<String, Object> attributes, String includeKey, String documentKey) {
-        if (attributes.containsKey(includeKey)) {
-            return true;
+    static String outputOffset(int offset) {
+        if (offset > 0) {
+            return "+" + offset;
         }
-        return document.hasAttribute(documentKey);
+        return "" + offset;
     }
 
     public static FileHolder createFileHolder(Path dir, Path path, String idprefix, String idseparator, int levelOffsetShifting, List<String> globalExistingAnchors) {
-        String key = dir.relativize(path)
-                .toString()
-                .replace('\\', '/');
+        ParsedFileHolder parsedFile = parseFile(path, idprefix, idseparator);
+        AnchorRegistry registry = new AnchorRegistry(globalExistingAnchors);
+        int initialSize = registry.size();
+        FileHolder fileHolder = createFileHolder(dir, parsedFile, idprefix, idseparator, levelOffsetShifting, registry);
+        globalExistingAnchors.addAll(registry.getAnchors()
+                .subList(initialSize, registry.size()));
+        return fileHolder;
+    }
 
-        String fileName = path.toFile()
-                .getName();
-        String nameWithoutSuffix = PathUtil.getNameWithoutSuffix(fileName);
-        String nameSuffix = PathUtil.getNameSuffix(fileName);
+    /**
+     * Reads the file and computes the information that do not depend on the other included files. This method does not have any side effects, it can be called concurrently.
+     */
+    public static ParsedFileHolder parseFile(Path path, String idprefix, String idseparator) {
+        return parseFile(path, idprefix, idseparator, ContentReader.DEFAULT_MMAP_THRESHOLD, null);
+    }
 
-        String content = readFile(path);
+    /**
+     * Same as {@link #parseFile(Path, String, String)}, files of at least {@code mmapThreshold} bytes are memory-mapped (see {@link ContentReader}). The read and parse durations are added to the statistics when they are not {@code null}.
+     */
+    static ParsedFileHolder parseFile(Path path, String idprefix, String idseparator, long mmapThreshold, DirectiveStatistics statistics) {
+        BasicFileAttributes attributes = readAttributes(path);
+        Object fileReadEvent = FlightRecorderEvents.INSTANCE.beginFileRead();
+        long start = System.nanoTime();
+        ContentReader.Content content = readContent(path, mmapThreshold);
+        FlightRecorderEvents.INSTANCE.commitFileRead(fileReadEvent, path, content.getByteCount());
+        if (statistics != null) {
+            statistics.fileRead(content.getByteCount());
+            start = statistics.endPhase(Phase.READ_FILES, start);
+        }
+        ParsedFileHolder result = parseContent(path, content.getText(), idprefix, idseparator);
+        if (statistics != null) {
+            statistics.endPhase(Phase.PARSE_FILES, start);
+        }
+        return result.withFileVersion(attributes.size(), attributes.lastModifiedTime()
+                .toMillis());
+    }
 
+    /**
+     * Same as {@link #parseFile(Path, String, String)} for a content that was already read. The titles are searched directly in {@code text}, which is converted to a {@link String} only once, for the returned holder.
+     */
+    public static ParsedFileHolder parseContent(Path path, CharSequence text, String idprefix, String idseparator) {
         TitleHolder firstTitle = null;
-        List<String> localExistingAnchors = new ArrayList<>();
+        AnchorRegistry localExistingAnchors = new AnchorRegistry();
+        List<String> anchors = new ArrayList<>();
         Map<String, String> titleAnchorMap = new HashMap<>();
-        Matcher titleMatcher = TITLE_REGEX.matcher(content);
-        while (titleMatcher.find()) {
-            TitleHolder titleHolder = toTitleHolder(idprefix, idseparator, localExistingAnchors, titleMatcher);
+        TitleScanner titleScanner = new TitleScanner(text);
+        while (titleScanner.find()) {
+            TitleHolder titleHolder = toTitleHolder(idprefix, idseparator, localExistingAnchors, titleScanner);
             if (firstTitle == null) {
                 firstTitle = titleHolder;
             }
             if (titleHolder.getTitleType() == TitleType.PRESENT) {
                 localExistingAnchors.add(titleHolder.getTitleId());
+                anchors.add(titleHolder.getTitleId());
                 if (!titleAnchorMap.containsKey(titleHolder.getTitle())) {
                     titleAnchorMap.put(titleHolder.getTitle(), titleHolder.getTitleId());
                 }
             }
         }
+        return new ParsedFileHolder(path, text.toString(), firstTitle, Collections.unmodifiableMap(titleAnchorMap), Collections.unmodifiableList(anchors), titleScanner.getLineIndex());
+    }
 
+    public static FileHolder createFileHolder(Path dir, ParsedFileHolder parsedFile, String idprefix, String idseparator, int levelOffsetShifting, AnchorRegistry globalExistingAnchors) {
+        Path path = parsedFile.getPath();
+        String key = dir.relativize(path)
+                .toString()
+                .replace('\\', '/');
+
+        String fileName = path.toFile()
+                .getName();
+        String nameWithoutSuffix = PathUtil.getNameWithoutSuffix(fileName);
+        String nameSuffix = PathUtil.getNameSuffix(fileName);
+
+        TitleHolder firstTitle = parsedFile.getFirstTitle();
         if (firstTitle == null) {
-            firstTitle = new TitleHolder(TitleType.ABSENT, 0, null, computeTitleId(key, idprefix, idseparator, Collections.emptyList()), 0, 0);
+            firstTitle = new TitleHolder(TitleType.ABSENT, 0, null, computeTitleId(key, idprefix, idseparator, new AnchorRegistry()), 0, 0);
         }
 
         int offset = calculateOffset(dir, path, nameWithoutSuffix, firstTitle.getTitleLevel(), levelOffsetShifting);
 
         Map<String, String> anchorShift = new HashMap<>();
-        for (String anchor : localExistingAnchors) {
+        for (String anchor : parsedFile.getAnchors()) {
             if (!globalExistingAnchors.contains(anchor)) {
                 globalExistingAnchors.add(anchor);
             } else {
                 String anchorWithoutSuffix = stripAnchorSuffix(anchor, idseparator);
-                String shiftedAnchor = shiftAnchor("(shift to global anchor '" + anchor + "')", idseparator, globalExistingAnchors, anchorWithoutSuffix);
+                String shiftedAnchor = globalExistingAnchors.nextFreeAnchor(anchorWithoutSuffix, idseparator);
                 anchorShift.put(anchor, shiftedAnchor);
                 globalExistingAnchors.add(shiftedAnchor);
             }
         }
 
-        return new FileHolder(path, key, nameWithoutSuffix, nameSuffix, content, firstTitle, offset, titleAnchorMap, anchorShift);
+        return new FileHolder(path, key, nameWithoutSuffix, nameSuffix, parsedFile.getContent(), firstTitle, offset, parsedFile.getTitleAnchorMap(), anchorShift);
     }
 
     static String stripAnchorSuffix(String anchor, String idseparator) {
@@ -318,54 +592,28 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
         return anchor;
     }
 
-    private static TitleHolder toTitleHolder(String idprefix, String idseparator, List<String> localExistingAnchors, Matcher titleMatcher) {
-        TitleType titleType = titleMatcher.group(1)
-                .isEmpty() ? TitleType.PRESENT : TitleType.COMMENTED;
-        int titleLevel = titleMatcher.group(2)
-                .length();
-        String title = titleMatcher.group(3)
-                .trim();
+    private static TitleHolder toTitleHolder(String idprefix, String idseparator, AnchorRegistry localExistingAnchors, TitleScanner titleScanner) {
+        String title = titleScanner.getTitle();
         String titleId = computeTitleId(title, idprefix, idseparator, localExistingAnchors);
-        int titleStart = titleMatcher.start();
-        int titleEnd = titleMatcher.end();
-        return new TitleHolder(titleType, titleLevel, title, titleId, titleStart, titleEnd);
+        return new TitleHolder(titleScanner.getTitleType(), titleScanner.getTitleLevel(), title, titleId, titleScanner.getTitleStart(), titleScanner.getTitleEnd());
     }
 
     public static String computeTitleId(String text, String idprefix, String idseparator, List<String> localExistingAnchors) {
+        return computeTitleId(text, idprefix, idseparator, new AnchorRegistry(localExistingAnchors));
+    }
+
+    public static String computeTitleId(String text, String idprefix, String idseparator, AnchorRegistry localExistingAnchors) {
         Optional<Range> find = DOUBLE_BRACKET_FINDER.nextRange(text);
         if (find.isPresent()) {
             Range range = find.get();
             return text.substring(range.getContentStart(), range.getContentEnd());
         }
 
-        StringBuilder sb = new StringBuilder();
-        if (idprefix != null) {
-            sb.append(idprefix);
-        }
-        String anchor = text;
-        anchor = anchor.replace("/", "");
-        anchor = anchor.replaceAll("[^\\w]", " ");
-        anchor = anchor.trim();
-        anchor = anchor.toLowerCase();
-        if (idseparator != null) {
-            anchor = anchor.replaceAll("\\s+", idseparator);
-        }
-        sb.append(anchor);
-        String candidate = sb.toString();
+        String candidate = Slugifier.slugify(text, idprefix, idseparator);
         if (!localExistingAnchors.contains(candidate)) {
             return candidate;
         }
-        return shiftAnchor("(computeTitleId for '" + text + "')", idseparator, localExistingAnchors, candidate);
-    }
-
-    private static String shiftAnchor(String helpContext, String idseparator, List<String> existingAnchors, String anchorWithoutSuffix) {
-        for (int i = 2; i < 1000; i++) {
-            String newCandidate = anchorWithoutSuffix + idseparator + i;
-            if (!existingAnchors.contains(newCandidate)) {
-                return newCandidate;
-            }
-        }
-        throw new IllegalStateException("Could not compute the anchor " + helpContext);
+        return localExistingAnchors.nextFreeAnchor(candidate, idseparator);
     }
 
     static int calculateOffset(Path dir, Path path, String nameWithoutSuffix, int titleLevel, int levelOffsetShifting) {
@@ -378,16 +626,130 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
     }
 
     public static String replaceXrefDoubleAngledBracketLinks(String content, List<FileHolder> list, Path dir, FileHolder currentPath, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver) {
-        return replaceXref(content, list, dir, currentPath, externalXrefAsText, DynamicIncludeProcessor::findNextXrefDoubleAngledBracket, attributeResolver);
+        return replaceXrefDoubleAngledBracketLinks(content, FileHolderIndex.of(list), dir, currentPath, externalXrefAsText, attributeResolver);
+    }
+
+    public static String replaceXrefDoubleAngledBracketLinks(String content, FileHolderIndex index, Path dir, FileHolder currentPath, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver) {
+        return replaceXref(content, index, dir, currentPath, externalXrefAsText, DynamicIncludeProcessor::findNextXrefDoubleAngledBracket, attributeResolver);
     }
 
     public static String replaceXrefInlineLinks(String content, List<FileHolder> list, Path dir, FileHolder currentPath, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver) {
-        return replaceXref(content, list, dir, currentPath, externalXrefAsText, DynamicIncludeProcessor::findNextXrefInline, attributeResolver);
+        return replaceXrefInlineLinks(content, FileHolderIndex.of(list), dir, currentPath, externalXrefAsText, attributeResolver);
+    }
+
+    public static String replaceXrefInlineLinks(String content, FileHolderIndex index, Path dir, FileHolder currentPath, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver) {
+        return replaceXref(content, index, dir, currentPath, externalXrefAsText, DynamicIncludeProcessor::findNextXrefInline, attributeResolver);
     }
 
-    private static String replaceXref(String content, List<FileHolder> list, Path dir, FileHolder currentPath, boolean externalXrefAsText, BiFunction<String, Integer, Optional<XrefHolder>> findFunction,
+    /**
+     * Replaces both the {@code <<...>>} and the {@code xref:...[...]} links in a single forward pass over the content. When the content does not contain any link, it is returned as is.
+     */
+    public static String replaceXrefLinks(String content, FileHolderIndex index, Path dir, FileHolder currentPath, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver) {
+        return replaceXrefLinks(content, index, dir, currentPath, externalXrefAsText, attributeResolver, null);
+    }
+
+    /**
+     * Same as {@link #replaceXrefLinks(String, FileHolderIndex, Path, FileHolder, boolean, Function)}, the found and rewritten links are counted in the statistics when they are not {@code null}.
+     */
+    public static String replaceXrefLinks(String content, FileHolderIndex index, Path dir, FileHolder currentPath, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver, DirectiveStatistics statistics) {
+        if (index.isEmpty() || (content.indexOf("<<") < 0 && content.indexOf("xref:") < 0)) {
+            return content;
+        }
+        StringBuilder sb = new StringBuilder(content.length() + 16);
+        int found = appendXrefLinks(sb, content, 0, index, dir, currentPath, externalXrefAsText, attributeResolver, null, null, statistics);
+        return (found == 0) ? content : sb.toString();
+    }
+
+    /**
+     * Appends {@code content} from {@code beginIndex} to its end to the builder, with the {@code <<...>>} and {@code xref:...[...]} links replaced (single forward pass, no intermediate copy of the content).
+     * <p>
+     * When {@code unresolvedXrefLogger} is not {@code null}, a warning with the location of the link is logged for each link to a file that is neither included nor existing. The line number is found with {@code lineIndex}, which must have been built from {@code content}; when it is
+     * {@code null} the line starts are computed at the first warning.
+     *
+     * @return the number of links found.
+     */
+    static int appendXrefLinks(StringBuilder sb, String content, int beginIndex, FileHolderIndex index, Path dir, FileHolder currentPath, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver,
+            Consumer<String> unresolvedXrefLogger, LineIndex lineIndex, DirectiveStatistics statistics) {
+        if (index.isEmpty() || (content.indexOf("<<", beginIndex) < 0 && content.indexOf("xref:", beginIndex) < 0)) {
+            sb.append(content, beginIndex, content.length());
+            return 0;
+        }
+        int found = 0;
+
+        int startAt = beginIndex;
+        XrefHolder nextDoubleAngledBracket = findNextXrefDoubleAngledBracket(content, startAt)
+                .orElse(null);
+        XrefHolder nextInline = findNextXrefInline(content, startAt)
+                .orElse(null);
+        while (nextDoubleAngledBracket != null || nextInline != null) {
+            XrefHolder holder;
+            if (nextInline == null || (nextDoubleAngledBracket != null && nextDoubleAngledBracket.getStartIndex() < nextInline.getStartIndex())) {
+                holder = nextDoubleAngledBracket;
+            } else {
+                holder = nextInline;
+            }
+
+            found++;
+            sb.append(content, startAt, holder.getStartIndex());
+            XrefHolder replacedHolder = replaceNestedXref(holder.getType(), replaceHolder(holder, index, dir, currentPath, externalXrefAsText, attributeResolver), index, dir, currentPath, externalXrefAsText, attributeResolver);
+            String replacement = holderToAsciiDoc(replacedHolder);
+            sb.append(replacement);
+            if (unresolvedXrefLogger != null && isUnresolved(replacedHolder, index, dir)) {
+                if (lineIndex == null) {
+                    lineIndex = LineIndex.of(content);
+                }
+                unresolvedXrefLogger.accept("unresolved xref to '" + holder.getFile() + "' at " + currentPath.getKey() + ":" + lineIndex.getLineNumber(holder.getStartIndex()));
+            }
+            if (statistics != null) {
+                int length = holder.getEndIndex() - holder.getStartIndex();
+                statistics.xrefFound(replacement.length() != length || !content.regionMatches(holder.getStartIndex(), replacement, 0, length));
+            }
+
+            startAt = holder.getEndIndex();
+            if (nextDoubleAngledBracket != null && nextDoubleAngledBracket.getStartIndex() < startAt) {
+                nextDoubleAngledBracket = findNextXrefDoubleAngledBracket(content, startAt)
+                        .orElse(null);
+            }
+            if (nextInline != null && nextInline.getStartIndex() < startAt) {
+                nextInline = findNextXrefInline(content, startAt)
+                        .orElse(null);
+            }
+        }
+
+        sb.append(content, startAt, content.length());
+        return found;
+    }
+
+    /**
+     * A link of the other syntax can be nested in the text of a link (for example {@code <<a.adoc#x, see xref:b.adoc#y[y]>>}). As with the two passes used before, the nested link is replaced as well.
+     */
+    private static XrefHolder replaceNestedXref(XrefHolderType type, XrefHolder replacedHolder, FileHolderIndex index, Path dir, FileHolder currentPath, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver) {
+        String text = replacedHolder.getText();
+        if (text == null) {
+            return replacedHolder;
+        }
+        String newText;
+        if (type == XrefHolderType.INLINE && text.contains("<<")) {
+            newText = replaceXref(text, index, dir, currentPath, externalXrefAsText, DynamicIncludeProcessor::findNextXrefDoubleAngledBracket, attributeResolver);
+        } else if (type == XrefHolderType.DOUBLE_ANGLED_BRACKET && text.contains("xref:")) {
+            newText = replaceXref(text, index, dir, currentPath, externalXrefAsText, DynamicIncludeProcessor::findNextXrefInline, attributeResolver);
+        } else {
+            return replacedHolder;
+        }
+        return new XrefHolder(replacedHolder.getFile(), replacedHolder.getAnchor(), newText, replacedHolder.getType(), replacedHolder.getStartIndex(), replacedHolder.getEndIndex());
+    }
+
+    /**
+     * @return {@code true} when the replaced link points to a file that is not included (the file name is then relative to {@code dir}) and that does not exist.
+     */
+    private static boolean isUnresolved(XrefHolder replacedHolder, FileHolderIndex index, Path dir) {
+        String fileName = replacedHolder.getFile();
+        return fileName != null && !fileName.isEmpty() && !index.exists(dir.resolve(fileName));
+    }
+
+    private static String replaceXref(String content, FileHolderIndex index, Path dir, FileHolder currentPath, boolean externalXrefAsText, BiFunction<String, Integer, Optional<XrefHolder>> findFunction,
             Function<String, Optional<String>> attributeResolver) {
-        if (list.isEmpty()) {
+        if (index.isEmpty()) {
             return content;
         }
         StringBuilder sb = new StringBuilder();
@@ -398,7 +760,7 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
             XrefHolder holder = find.get();
 
             sb.append(content.substring(startAt, holder.getStartIndex()));
-            XrefHolder replacedHolder = replaceHolder(holder, list, dir, currentPath, externalXrefAsText, attributeResolver);
+            XrefHolder replacedHolder = replaceHolder(holder, index, dir, currentPath, externalXrefAsText, attributeResolver);
             sb.append(holderToAsciiDoc(replacedHolder));
 
             startAt = holder.getEndIndex();
@@ -479,7 +841,7 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
         return Optional.empty();
     }
 
-    private static XrefHolder replaceHolder(XrefHolder holder, List<FileHolder> list, Path dir, FileHolder currentFile, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver) {
+    private static XrefHolder replaceHolder(XrefHolder holder, FileHolderIndex index, Path dir, FileHolder currentFile, boolean externalXrefAsText, Function<String, Optional<String>> attributeResolver) {
         String newFileName;
         String newAnchor;
         String fileName = holder.getFile();
@@ -491,14 +853,14 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
             } else {
                 String subpath = resolveAttributes(fileName, attributeResolver);
                 file = dir.resolve(subpath);
-                if (!Files.exists(file)) {
+                if (!index.exists(file)) {
                     file = currentFile.getPath()
                             .getParent()
                             .resolve(subpath);
                 }
                 file = file.normalize();
             }
-            Optional<FileHolder> findFile = findByFile(list, file);
+            Optional<FileHolder> findFile = index.find(file);
             if (!findFile.isPresent()) {
                 if (externalXrefAsText) {
                     type = XrefHolderType.TEXT;
@@ -525,6 +887,10 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
     }
 
     static String resolveAttributes(String value, Function<String, Optional<String>> resolver) {
+        if (resolver instanceof AttributeSnapshot) {
+            // memoized:
+            return ((AttributeSnapshot) resolver).resolveAttributes(value);
+        }
         return resolveAttributes(value, resolver, Collections.emptyList());
     }
 
@@ -628,18 +994,25 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
         return sb.toString();
     }
 
-    private static Optional<FileHolder> findByFile(List<FileHolder> list, Path file) {
-        return list.stream()
-                .filter(i -> Objects.equals(file.normalize(), i.getPath()))
-                .findAny();
+    public static int countLines(String string) {
+        return countLines(string, string.length());
     }
 
-    public static int countLines(String string) {
-        Matcher m = Pattern.compile("\r\n|\r|\n")
-                .matcher(string);
+    /**
+     * Counts the lines of {@code string.substring(0, endIndex)} without creating the substring. {@code \r\n}, {@code \r} and {@code \n} are line separators.
+     */
+    public static int countLines(String string, int endIndex) {
         int counter = 1;
-        while (m.find()) {
-            counter++;
+        for (int i = 0; i < endIndex; i++) {
+            char c = string.charAt(i);
+            if (c == '\n') {
+                counter++;
+            } else if (c == '\r') {
+                counter++;
+                if (i + 1 < endIndex && string.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            }
         }
         return counter;
     }
@@ -678,14 +1051,26 @@ public class DynamicIncludeProcessor extends IncludeProcessor {
         }
     }
 
-    static String readFile(Path file) {
-        String content;
+    static ContentReader.Content readContent(Path file, long mmapThreshold) {
+        ContentReader.Content content;
         try {
-            content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            content = ContentReader.read(file, mmapThreshold);
         } catch (IOException e) {
             e.printStackTrace();
             throw new IllegalStateException("Could not read file: " + file, e);
         }
         return content;
     }
+
+    /**
+     * Reads the size and modification time of a file before its content, they identify the version of the file the computed values correspond to.
+     */
+    static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Could not read file: " + file, e);
+        }
+    }
 }
@@ -43,6 +43,9 @@ public class FileHolder {
         return nameSuffix;
     }
 
+    /**
+     * @return the content of the file or {@code null} when the holder was created from the metadata of the file only (see {@link ParsedFileHolder#withoutContent()}).
+     */
     public String getContent() {
         return content;
     }
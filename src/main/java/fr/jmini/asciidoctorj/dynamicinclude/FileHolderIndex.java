@@ -0,0 +1,66 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Index of the included files by path, built once per include directive and used to resolve the file part of xref links. The included files can not be changed once the index is built.
+ * <p>
+ * The index also caches the existence of the other files targeted by xref links (positive and negative results), so that the file system is queried at most once per path and per directive. This cache is filled while the links are rewritten, it is safe to use from the threads
+ * processing the files in parallel.
+ */
+public class FileHolderIndex {
+
+    private final Map<Path, FileHolder> holders;
+    private final Predicate<Path> fileExists;
+    private final Map<Path, Boolean> existingFiles = new ConcurrentHashMap<>();
+
+    private FileHolderIndex(Map<Path, FileHolder> holders, Predicate<Path> fileExists) {
+        this.holders = holders;
+        this.fileExists = fileExists;
+    }
+
+    public static FileHolderIndex of(List<FileHolder> list) {
+        return of(list, p -> Files.exists(p));
+    }
+
+    /**
+     * @param fileExists
+     *            check performed on the file system for the files that are not included (the tests count the calls)
+     */
+    static FileHolderIndex of(List<FileHolder> list, Predicate<Path> fileExists) {
+        Map<Path, FileHolder> holders = new HashMap<>();
+        for (FileHolder holder : list) {
+            holders.putIfAbsent(holder.getPath(), holder);
+        }
+        return new FileHolderIndex(Collections.unmodifiableMap(holders), fileExists);
+    }
+
+    public Optional<FileHolder> find(Path file) {
+        return Optional.ofNullable(holders.get(file.normalize()));
+    }
+
+    /**
+     * A path with redundant elements is checked on the file system (once): {@code missing/../page.adoc} does not exist when the {@code missing} folder does not exist, even if {@code page.adoc} is included.
+     *
+     * @return {@code true} if the file is one of the included files or if it exists, without querying the file system for an included file or for a file already checked with this index.
+     */
+    public boolean exists(Path file) {
+        if (holders.containsKey(file) && file.normalize()
+                .equals(file)) {
+            return true;
+        }
+        return existingFiles.computeIfAbsent(file, fileExists::test);
+    }
+
+    public boolean isEmpty() {
+        return holders.isEmpty();
+    }
+}
@@ -0,0 +1,58 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.nio.file.Path;
+
+/**
+ * Emits Java Flight Recorder events around the units of work of the processor.
+ * <p>
+ * The implementation using the {@code jdk.jfr} API is compiled for Java 11 and shipped in the {@code META-INF/versions/11} folder of the multi-release jar. On Java 8, or when it can not be loaded, the no-op {@link #NONE} is used.
+ * <p>
+ * Each {@code begin...} method returns the started event, or {@code null} when the event type is not enabled in any running recording. The {@code commit...} methods ignore {@code null}, so nothing is allocated or computed when no recording is active.
+ */
+interface FlightRecorderEvents {
+
+    String IMPLEMENTATION_CLASS_NAME = "fr.jmini.asciidoctorj.dynamicinclude.JfrFlightRecorderEvents";
+
+    FlightRecorderEvents NONE = new FlightRecorderEvents() {
+    };
+
+    FlightRecorderEvents INSTANCE = load(IMPLEMENTATION_CLASS_NAME);
+
+    static FlightRecorderEvents load(String className) {
+        try {
+            return (FlightRecorderEvents) Class.forName(className, true, FlightRecorderEvents.class.getClassLoader())
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return NONE;
+        }
+    }
+
+    default Object beginDirective() {
+        return null;
+    }
+
+    default void commitDirective(Object event, String glob, Path dir, int fileCount, long byteCount) {
+    }
+
+    default Object beginDirectoryWalk() {
+        return null;
+    }
+
+    default void commitDirectoryWalk(Object event, String glob, Path dir, int fileCount) {
+    }
+
+    default Object beginFileRead() {
+        return null;
+    }
+
+    default void commitFileRead(Object event, Path file, long byteCount) {
+    }
+
+    default Object beginXrefRewrite() {
+        return null;
+    }
+
+    default void commitXrefRewrite(Object event, Path file, int length) {
+    }
+}
@@ -0,0 +1,28 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.nio.file.Path;
+
+public class IncludeHolder {
+
+    private Path path;
+    private String content;
+    private int lineNumber;
+
+    public IncludeHolder(Path path, String content, int lineNumber) {
+        this.path = path;
+        this.content = content;
+        this.lineNumber = lineNumber;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
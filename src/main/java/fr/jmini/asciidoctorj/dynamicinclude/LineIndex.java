@@ -0,0 +1,85 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.util.Arrays;
+
+/**
+ * Offsets of the line starts of a content, used to compute the line number of any offset (title start, split index, xref position) with a binary search instead of counting the line separators again.
+ * <p>
+ * As in {@link DynamicIncludeProcessor#countLines(String, int)}, {@code \r\n}, {@code \r} and {@code \n} are the line separators. The table is built by the {@link TitleScanner}, during the scan that finds the titles.
+ */
+public class LineIndex {
+
+    private final int[] lineStarts;
+    private final int length;
+
+    /**
+     * @param lineStarts
+     *            offsets of the line starts in increasing order, the first one is {@code 0}. The array is not copied.
+     * @param length
+     *            length of the indexed content
+     */
+    public LineIndex(int[] lineStarts, int length) {
+        this.lineStarts = lineStarts;
+        this.length = length;
+    }
+
+    public static LineIndex of(CharSequence content) {
+        Builder builder = new Builder();
+        int length = content.length();
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            if (c == '\r' && i + 1 < length && content.charAt(i + 1) == '\n') {
+                i++;
+                builder.add(i + 1);
+            } else if (c == '\n' || c == '\r') {
+                builder.add(i + 1);
+            }
+        }
+        return builder.build(length);
+    }
+
+    /**
+     * @return the number (starting at 1) of the line containing the offset. An offset located between the {@code \r} and the {@code \n} of a separator belongs to the line ended by this separator.
+     */
+    public int getLineNumber(int offset) {
+        int i = Arrays.binarySearch(lineStarts, offset);
+        return (i >= 0) ? i + 1 : -i - 1;
+    }
+
+    public int getLineCount() {
+        return lineStarts.length;
+    }
+
+    /**
+     * @return the length of the indexed content.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the line starts, the array must not be modified.
+     */
+    int[] getLineStarts() {
+        return lineStarts;
+    }
+
+    /**
+     * Collects the line starts in a growing array.
+     */
+    static class Builder {
+        private int[] lineStarts = new int[64];
+        private int size = 1;
+
+        void add(int lineStart) {
+            if (size == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, size * 2);
+            }
+            lineStarts[size++] = lineStart;
+        }
+
+        LineIndex build(int length) {
+            return new LineIndex(Arrays.copyOf(lineStarts, size), length);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+/**
+ * Format of the records written to the logfile.
+ */
+public enum LogfileFormat {
+    /**
+     * Human readable block per directive (default).
+     */
+    TEXT,
+    /**
+     * One JSON object per line.
+     */
+    JSON_LINES
+}
@@ -0,0 +1,89 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import fr.jmini.asciidoctorj.dynamicinclude.DynamicIncludeEvent.Phase;
+
+/**
+ * Appends a summary of the directive statistics to the logfile, in the format of the {@code logfile-format} option. Nothing is written when the {@code logfile} option is not set.
+ * <p>
+ * This listener is used when the {@code logfile-statistics} option is set, it can also be registered as any other {@link DynamicIncludeListener}.
+ */
+public class LogfileStatisticsListener implements DynamicIncludeListener {
+
+    @Override
+    public void directiveProcessed(DynamicIncludeEvent event) {
+        if (event.getLogfile() != null) {
+            String record = (event.getLogfileFormat() == LogfileFormat.JSON_LINES) ? toJson(event) : toSummary(event);
+            LogfileWriter.forFile(Paths.get(event.getLogfile()))
+                    .append(record);
+        }
+    }
+
+    static String toSummary(DynamicIncludeEvent event) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Statistics: ");
+        sb.append(event.getFileCount());
+        sb.append(" files (");
+        sb.append(event.getReadFileCount());
+        sb.append(" read, ");
+        sb.append(event.getBytesRead());
+        sb.append(" bytes), ");
+        sb.append(event.getXrefsFound());
+        sb.append(" xrefs (");
+        sb.append(event.getXrefsRewritten());
+        sb.append(" rewritten), total: ");
+        sb.append(toMillis(event.getTotalNanos()));
+        for (Phase phase : Phase.values()) {
+            sb.append(", ");
+            sb.append(toPhaseName(phase));
+            sb.append(": ");
+            sb.append(toMillis(event.getPhaseNanos(phase)));
+        }
+        sb.append("\n");
+        sb.append("\n");
+        return sb.toString();
+    }
+
+    static String toJson(DynamicIncludeEvent event) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"type\":\"statistics\",\"file\":");
+        LogfileWriter.appendJsonString(sb, event.getFile());
+        sb.append(",\"target\":");
+        LogfileWriter.appendJsonString(sb, event.getTarget());
+        sb.append(",\"fileCount\":");
+        sb.append(event.getFileCount());
+        sb.append(",\"readFileCount\":");
+        sb.append(event.getReadFileCount());
+        sb.append(",\"bytesRead\":");
+        sb.append(event.getBytesRead());
+        sb.append(",\"xrefsFound\":");
+        sb.append(event.getXrefsFound());
+        sb.append(",\"xrefsRewritten\":");
+        sb.append(event.getXrefsRewritten());
+        sb.append(",\"totalNanos\":");
+        sb.append(event.getTotalNanos());
+        sb.append(",\"phaseNanos\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                sb.append(",");
+            }
+            LogfileWriter.appendJsonString(sb, toPhaseName(phase));
+            sb.append(":");
+            sb.append(event.getPhaseNanos(phase));
+        }
+        sb.append("}}\n");
+        return sb.toString();
+    }
+
+    private static String toPhaseName(Phase phase) {
+        return phase.name()
+                .toLowerCase(Locale.ROOT)
+                .replace('_', '-');
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,116 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffers the records written to a logfile by an include directive and appends them in a single batch.
+ * <p>
+ * There is one writer per logfile in the JVM, so that the records of directives processed concurrently (parallel conversions of several documents) are never interleaved. Each flush opens a single channel, holds an exclusive file lock while it writes the whole batch (other processes appending
+ * to the same file are also serialized) and closes the channel.
+ * <p>
+ * The buffered records are flushed at the end of each include directive (see {@link DynamicIncludeProcessor}), and earlier when the buffer exceeds {@link #FLUSH_THRESHOLD} characters.
+ */
+public class LogfileWriter {
+
+    public static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    private static final ConcurrentHashMap<Path, LogfileWriter> WRITERS = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final StringBuilder buffer = new StringBuilder();
+
+    private LogfileWriter(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the writer shared by all the processors appending to this file.
+     */
+    public static LogfileWriter forFile(Path path) {
+        return WRITERS.computeIfAbsent(path.toAbsolutePath()
+                .normalize(), LogfileWriter::new);
+    }
+
+    /**
+     * Writes the pending records of all the logfiles.
+     */
+    public static void flushAll() {
+        WRITERS.values()
+                .forEach(LogfileWriter::flush);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Adds a complete record (one or several lines, including the trailing line separator) to the buffer.
+     */
+    public synchronized void append(String record) {
+        buffer.append(record);
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+        if (buffer.length() == 0) {
+            return;
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(buffer.toString());
+        buffer.setLength(0);
+        try {
+            Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    FileLock lock = channel.lock()) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends the value as a JSON string (with the quotes), escaping the characters that are not allowed in a JSON string.
+     */
+    static StringBuilder appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"');
+    }
+}
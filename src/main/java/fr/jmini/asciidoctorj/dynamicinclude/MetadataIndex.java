@@ -0,0 +1,356 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.jmini.asciidoctorj.dynamicinclude.DynamicIncludeEvent.Phase;
+
+/**
+ * Persistent index of the metadata computed when a file is parsed (first title, title anchors, content length), stored on disk so that it can be reused by the next builds.
+ * <p>
+ * An entry is reused without reading the file when its size and its modification time are unchanged, and without parsing it when the hash of its content is unchanged (for example after a checkout touched the file).
+ * <p>
+ * Only the metadata is stored, the content is read from the file when it is included. The line starts are not stored either (the size of the index would grow with the number of lines of the site), the line numbers are computed from the content when they are needed.
+ * <p>
+ * The index file is loaded once per JVM and written back (to a temporary file that is then moved) after each include directive that changed it. A missing, unreadable or incompatible index file is ignored.
+ */
+public class MetadataIndex {
+
+    private static final int MAGIC = 0x44494D49;
+    private static final int VERSION = 3;
+
+    private static final Map<Path, MetadataIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final Map<EntryKey, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final AtomicLong reusedCount = new AtomicLong();
+    private final AtomicLong parsedCount = new AtomicLong();
+
+    private MetadataIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the index stored in the given file, loaded once and then shared by all the include directives of the JVM.
+     */
+    public static MetadataIndex forFile(Path file) {
+        return INDEXES.computeIfAbsent(file.toAbsolutePath()
+                .normalize(), MetadataIndex::load);
+    }
+
+    /**
+     * Loads the index stored in the given file, without sharing it.
+     */
+    public static MetadataIndex load(Path file) {
+        MetadataIndex index = new MetadataIndex(file);
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                index.read(new DataInputStream(new BufferedInputStream(in)));
+            } catch (IOException | RuntimeException e) {
+                index.entries.clear();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the metadata of the file, computed by {@link DynamicIncludeProcessor#parseContent(Path, CharSequence, String, String)} only when the file is not indexed or has changed.
+     * <p>
+     * When the size and the modification time of the file are unchanged, the file is not read: the returned holder does not have any content (see {@link ParsedFileHolder#isContentRead()}).
+     */
+    public ParsedFileHolder parseFile(Path path, String idprefix, String idseparator) {
+        return parseFile(path, idprefix, idseparator, ContentReader.DEFAULT_MMAP_THRESHOLD, null);
+    }
+
+    /**
+     * Same as {@link #parseFile(Path, String, String)}, files of at least {@code mmapThreshold} bytes are memory-mapped (see {@link ContentReader}). The read and parse durations are added to the statistics when they are not {@code null}.
+     */
+    public ParsedFileHolder parseFile(Path path, String idprefix, String idseparator, long mmapThreshold, DirectiveStatistics statistics) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Could not read file: " + path, e);
+        }
+        long size = attributes.size();
+        long lastModifiedTime = attributes.lastModifiedTime()
+                .toMillis();
+
+        EntryKey key = new EntryKey(path.toAbsolutePath()
+                .normalize()
+                .toString(), idprefix, idseparator);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.size == size && entry.lastModifiedTime == lastModifiedTime) {
+            reusedCount.incrementAndGet();
+            return entry.toParsedFileHolder(path, null, size, lastModifiedTime);
+        }
+
+        Object fileReadEvent = FlightRecorderEvents.INSTANCE.beginFileRead();
+        long start = System.nanoTime();
+        byte[] bytes;
+        CharSequence content;
+        try {
+            if (size < mmapThreshold) {
+                bytes = Files.readAllBytes(path);
+                content = new String(bytes, StandardCharsets.UTF_8);
+            } else {
+                // The bytes are only hashed when needed, by mapping the file again:
+                bytes = null;
+                content = ContentReader.read(path, mmapThreshold)
+                        .getText();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Could not read file: " + path, e);
+        }
+        long byteCount = (bytes != null) ? bytes.length : size;
+        FlightRecorderEvents.INSTANCE.commitFileRead(fileReadEvent, path, byteCount);
+        if (statistics != null) {
+            statistics.fileRead(byteCount);
+            start = statistics.endPhase(Phase.READ_FILES, start);
+        }
+        byte[] hash = (bytes != null) ? hash(bytes) : hashMapped(path);
+        if (entry != null && Arrays.equals(entry.hash, hash)) {
+            entries.put(key, new Entry(size, lastModifiedTime, hash, entry.firstTitle, entry.titleAnchorMap, entry.anchors, entry.length));
+            dirty.set(true);
+            reusedCount.incrementAndGet();
+            return entry.toParsedFileHolder(path, content.toString(), size, lastModifiedTime);
+        }
+        ParsedFileHolder parsedFile = DynamicIncludeProcessor.parseContent(path, content, idprefix, idseparator);
+        if (statistics != null) {
+            statistics.endPhase(Phase.PARSE_FILES, start);
+        }
+        entries.put(key, new Entry(size, lastModifiedTime, hash, parsedFile.getFirstTitle(), parsedFile.getTitleAnchorMap(), parsedFile.getAnchors(), parsedFile.getContentLength()));
+        dirty.set(true);
+        parsedCount.incrementAndGet();
+        return parsedFile.withFileVersion(size, lastModifiedTime);
+    }
+
+    /**
+     * Writes the index file if it was modified since it was loaded or last saved.
+     */
+    public void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            Path absoluteFile = file.toAbsolutePath();
+            Files.createDirectories(absoluteFile.getParent());
+            Path tempFile = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName()
+                    .toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+                write(dataOut);
+                dataOut.flush();
+            }
+            try {
+                Files.move(tempFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of files for which the indexed metadata was used.
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * @return the number of files that had to be parsed.
+     */
+    public long getParsedCount() {
+        return parsedCount.get();
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return;
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            EntryKey key = new EntryKey(in.readUTF(), in.readUTF(), in.readUTF());
+            long size = in.readLong();
+            long lastModifiedTime = in.readLong();
+            byte[] hash = new byte[in.readUnsignedByte()];
+            in.readFully(hash);
+            TitleHolder firstTitle = null;
+            if (in.readBoolean()) {
+                TitleType titleType = TitleType.valueOf(in.readUTF());
+                int titleLevel = in.readInt();
+                String title = in.readUTF();
+                String titleId = in.readUTF();
+                int titleStart = in.readInt();
+                int titleEnd = in.readInt();
+                firstTitle = new TitleHolder(titleType, titleLevel, title, titleId, titleStart, titleEnd);
+            }
+            int anchorCount = in.readInt();
+            List<String> anchors = new ArrayList<>(anchorCount);
+            for (int j = 0; j < anchorCount; j++) {
+                anchors.add(in.readUTF());
+            }
+            int mapSize = in.readInt();
+            Map<String, String> titleAnchorMap = new HashMap<>();
+            for (int j = 0; j < mapSize; j++) {
+                titleAnchorMap.put(in.readUTF(), in.readUTF());
+            }
+            int length = in.readInt();
+            entries.put(key, new Entry(size, lastModifiedTime, hash, firstTitle, Collections.unmodifiableMap(titleAnchorMap), Collections.unmodifiableList(anchors), length));
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        Map<EntryKey, Entry> snapshot = new HashMap<>(entries);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<EntryKey, Entry> e : snapshot.entrySet()) {
+            EntryKey key = e.getKey();
+            Entry entry = e.getValue();
+            out.writeUTF(key.path);
+            out.writeUTF(key.idprefix);
+            out.writeUTF(key.idseparator);
+            out.writeLong(entry.size);
+            out.writeLong(entry.lastModifiedTime);
+            out.writeByte(entry.hash.length);
+            out.write(entry.hash);
+            TitleHolder firstTitle = entry.firstTitle;
+            out.writeBoolean(firstTitle != null);
+            if (firstTitle != null) {
+                out.writeUTF(firstTitle.getTitleType()
+                        .name());
+                out.writeInt(firstTitle.getTitleLevel());
+                out.writeUTF(firstTitle.getTitle());
+                out.writeUTF(firstTitle.getTitleId());
+                out.writeInt(firstTitle.getTitleStart());
+                out.writeInt(firstTitle.getTitleEnd());
+            }
+            out.writeInt(entry.anchors.size());
+            for (String anchor : entry.anchors) {
+                out.writeUTF(anchor);
+            }
+            out.writeInt(entry.titleAnchorMap.size());
+            for (Map.Entry<String, String> mapEntry : entry.titleAnchorMap.entrySet()) {
+                out.writeUTF(mapEntry.getKey());
+                out.writeUTF(mapEntry.getValue());
+            }
+            out.writeInt(entry.length);
+        }
+    }
+
+    private static byte[] hash(byte[] bytes) {
+        return newDigest().digest(bytes);
+    }
+
+    private static byte[] hashMapped(Path path) {
+        MessageDigest digest = newDigest();
+        try {
+            ContentReader.digestMapped(path, digest);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Could not read file: " + path, e);
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class EntryKey {
+        private final String path;
+        private final String idprefix;
+        private final String idseparator;
+
+        EntryKey(String path, String idprefix, String idseparator) {
+            this.path = path;
+            this.idprefix = idprefix;
+            this.idseparator = idseparator;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, idprefix, idseparator);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey other = (EntryKey) obj;
+            return Objects.equals(path, other.path) && Objects.equals(idprefix, other.idprefix) && Objects.equals(idseparator, other.idseparator);
+        }
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long lastModifiedTime;
+        private final byte[] hash;
+        private final TitleHolder firstTitle;
+        private final Map<String, String> titleAnchorMap;
+        private final List<String> anchors;
+        private final int length;
+
+        Entry(long size, long lastModifiedTime, byte[] hash, TitleHolder firstTitle, Map<String, String> titleAnchorMap, List<String> anchors, int length) {
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+            this.hash = hash;
+            this.firstTitle = firstTitle;
+            this.titleAnchorMap = titleAnchorMap;
+            this.anchors = anchors;
+            this.length = length;
+        }
+
+        /**
+         * @param content
+         *            the content of the file, or {@code null} when the file was not read
+         */
+        ParsedFileHolder toParsedFileHolder(Path path, String content, long size, long lastModifiedTime) {
+            if (content == null) {
+                return ParsedFileHolder.ofMetadata(path, firstTitle, titleAnchorMap, anchors, length, size, lastModifiedTime);
+            }
+            return new ParsedFileHolder(path, content, firstTitle, titleAnchorMap, anchors, null).withFileVersion(size, lastModifiedTime);
+        }
+    }
+}
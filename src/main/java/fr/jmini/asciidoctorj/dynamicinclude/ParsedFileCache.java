@@ -0,0 +1,231 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of the parsed files (content, titles and title anchors), shared by the include directives of all the converted documents.
+ * <p>
+ * An entry is keyed by the absolute path, the size and the modification time of the file and by the {@code idprefix} and {@code idseparator} used to compute the anchors.
+ * <p>
+ * Entries are evicted in least recently used order when their total weight (estimated memory used by the cached strings, in bytes) exceeds the budget.
+ * <p>
+ * The anchors shifting depends on the other included files, it is not cached and is still computed for each include directive.
+ */
+public class ParsedFileCache {
+
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private final Map<CacheKey, ParsedFileHolder> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxWeight;
+    private long weight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    public ParsedFileCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @param path
+     *            file to parse
+     * @param idprefix
+     *            idprefix used to compute the anchors
+     * @param idseparator
+     *            idseparator used to compute the anchors
+     * @param loader
+     *            parses the file when it is not cached (called outside of any lock). A value without content (metadata found in the {@link MetadataIndex}) is returned but not cached.
+     * @return the cached value if the file is unchanged, the value computed by the loader otherwise.
+     */
+    public ParsedFileHolder get(Path path, String idprefix, String idseparator, Supplier<ParsedFileHolder> loader) {
+        CacheKey key = toKey(path, idprefix, idseparator);
+        if (key == null) {
+            synchronized (this) {
+                missCount++;
+            }
+            return loader.get();
+        }
+        ParsedFileHolder cached;
+        synchronized (this) {
+            cached = entries.get(key);
+            if (cached != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+        }
+        if (cached != null) {
+            return withPath(cached, path);
+        }
+        ParsedFileHolder parsedFile = loader.get();
+        put(key, parsedFile);
+        return parsedFile;
+    }
+
+    /**
+     * Same as {@link #get(Path, String, String, Supplier)} without loader: used to get the content of a file that was already parsed, the hit and miss counters are not updated.
+     *
+     * @return the cached value if the file is unchanged, {@code null} if the file is not cached.
+     */
+    public ParsedFileHolder getIfPresent(Path path, String idprefix, String idseparator) {
+        CacheKey key = toKey(path, idprefix, idseparator);
+        if (key == null) {
+            return null;
+        }
+        ParsedFileHolder cached;
+        synchronized (this) {
+            cached = entries.get(key);
+        }
+        return (cached != null) ? withPath(cached, path) : null;
+    }
+
+    private static ParsedFileHolder withPath(ParsedFileHolder cached, Path path) {
+        if (Objects.equals(cached.getPath(), path)) {
+            return cached;
+        }
+        return cached.withPath(path);
+    }
+
+    public synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    public synchronized long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return the estimated memory used by the cached entries, in bytes.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Removes all the entries and resets the counters.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    private synchronized void put(CacheKey key, ParsedFileHolder parsedFile) {
+        if (parsedFile.getContent() == null) {
+            return;
+        }
+        long entryWeight = weigh(parsedFile);
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        ParsedFileHolder previous = entries.put(key, parsedFile);
+        if (previous != null) {
+            weight -= weigh(previous);
+        }
+        weight += entryWeight;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<ParsedFileHolder> iterator = entries.values()
+                .iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            weight -= weigh(iterator.next());
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    static long weigh(ParsedFileHolder parsedFile) {
+        long result = 2L * parsedFile.getContent()
+                .length();
+        for (String anchor : parsedFile.getAnchors()) {
+            result += 2L * anchor.length();
+        }
+        for (Map.Entry<String, String> entry : parsedFile.getTitleAnchorMap()
+                .entrySet()) {
+            String title = entry.getKey();
+            String anchor = entry.getValue();
+            result += 2L * (title.length() + anchor.length());
+        }
+        if (parsedFile.getLineIndex() != null) {
+            result += 4L * parsedFile.getLineIndex()
+                    .getLineCount();
+        }
+        return result;
+    }
+
+    private static CacheKey toKey(Path path, String idprefix, String idseparator) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        Path absolutePath = path.toAbsolutePath()
+                .normalize();
+        long lastModifiedTime = attributes.lastModifiedTime()
+                .toMillis();
+        return new CacheKey(absolutePath, attributes.size(), lastModifiedTime, idprefix, idseparator);
+    }
+
+    private static class CacheKey {
+        private final Path path;
+        private final long size;
+        private final long lastModifiedTime;
+        private final String idprefix;
+        private final String idseparator;
+
+        CacheKey(Path path, long size, long lastModifiedTime, String idprefix, String idseparator) {
+            this.path = path;
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+            this.idprefix = idprefix;
+            this.idseparator = idseparator;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, size, lastModifiedTime, idprefix, idseparator);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return size == other.size && lastModifiedTime == other.lastModifiedTime && Objects.equals(path, other.path) && Objects.equals(idprefix, other.idprefix) && Objects.equals(idseparator, other.idseparator);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class ParsedFileHolder {
+
+    private Path path;
+    private String content;
+    private TitleHolder firstTitle;
+    private Map<String, String> titleAnchorMap;
+    private List<String> anchors;
+    private LineIndex lineIndex;
+    private int contentLength;
+    private boolean contentRead;
+    private long size;
+    private long lastModifiedTime;
+
+    /**
+     * Creates a holder for a content of which the file version (size and modification time) is unknown, see {@link #withFileVersion(long, long)}.
+     *
+     * @param lineIndex
+     *            line starts of {@code content} or {@code null} when they were not computed
+     */
+    public ParsedFileHolder(Path path, String content, TitleHolder firstTitle, Map<String, String> titleAnchorMap, List<String> anchors, LineIndex lineIndex) {
+        this(path, content, firstTitle, titleAnchorMap, anchors, lineIndex, content.length(), true, -1L, -1L);
+    }
+
+    private ParsedFileHolder(Path path, String content, TitleHolder firstTitle, Map<String, String> titleAnchorMap, List<String> anchors, LineIndex lineIndex, int contentLength, boolean contentRead, long size, long lastModifiedTime) {
+        this.path = path;
+        this.content = content;
+        this.firstTitle = firstTitle;
+        this.titleAnchorMap = titleAnchorMap;
+        this.anchors = anchors;
+        this.lineIndex = lineIndex;
+        this.contentLength = contentLength;
+        this.contentRead = contentRead;
+        this.size = size;
+        this.lastModifiedTime = lastModifiedTime;
+    }
+
+    /**
+     * @return a holder for metadata that was computed by a previous build (see {@link MetadataIndex}), the file was not read to create it.
+     */
+    static ParsedFileHolder ofMetadata(Path path, TitleHolder firstTitle, Map<String, String> titleAnchorMap, List<String> anchors, int contentLength, long size, long lastModifiedTime) {
+        return new ParsedFileHolder(path, null, firstTitle, titleAnchorMap, anchors, null, contentLength, false, size, lastModifiedTime);
+    }
+
+    /**
+     * @return a holder with the same values for the version of the file (size and modification time read before the content) from which they were computed.
+     */
+    ParsedFileHolder withFileVersion(long size, long lastModifiedTime) {
+        return new ParsedFileHolder(path, content, firstTitle, titleAnchorMap, anchors, lineIndex, contentLength, contentRead, size, lastModifiedTime);
+    }
+
+    /**
+     * @return a holder with the same values for another path of the same file.
+     */
+    ParsedFileHolder withPath(Path path) {
+        return new ParsedFileHolder(path, content, firstTitle, titleAnchorMap, anchors, lineIndex, contentLength, contentRead, size, lastModifiedTime);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the content of the file or {@code null} for a holder created by {@link #withoutContent()}.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return a holder with the same metadata (titles, anchors, content length and file version) that does not reference the content of the file nor its line starts.
+     */
+    public ParsedFileHolder withoutContent() {
+        return new ParsedFileHolder(path, null, firstTitle, titleAnchorMap, anchors, null, contentLength, contentRead, size, lastModifiedTime);
+    }
+
+    /**
+     * @return the first title found in the file or {@code null} if the file does not contain any title.
+     */
+    public TitleHolder getFirstTitle() {
+        return firstTitle;
+    }
+
+    public Map<String, String> getTitleAnchorMap() {
+        return titleAnchorMap;
+    }
+
+    /**
+     * @return the anchors of the titles present in the file, in document order.
+     */
+    public List<String> getAnchors() {
+        return anchors;
+    }
+
+    /**
+     * @return the line starts of the content, or {@code null} when they were not computed (the metadata was found in the {@link MetadataIndex}, or the holder does not reference the content).
+     */
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    /**
+     * @return the length of the content, kept by {@link #withoutContent()} to check that the content loaded again still corresponds to the metadata.
+     */
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return {@code true} if the file was read to compute the metadata, {@code false} if the metadata was found in the {@link MetadataIndex} (the file is then read for the first time when its content is loaded).
+     */
+    public boolean isContentRead() {
+        return contentRead;
+    }
+
+    /**
+     * @return the size of the file the values were computed from, or {@code -1} when it is unknown.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the modification time (in milliseconds) of the file the values were computed from, or {@code -1} when it is unknown.
+     */
+    public long getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    /**
+     * @return {@code true} if the given size and modification time are the ones of the file the values were computed from, or if one of the two file versions is unknown.
+     */
+    public boolean isFileVersion(long size, long lastModifiedTime) {
+        return this.size < 0 || size < 0 || (this.size == size && this.lastModifiedTime == lastModifiedTime);
+    }
+
+    /**
+     * @return the number (starting at 1) of the line of the content containing the offset, found with the line starts when they were computed, by counting the line separators otherwise.
+     */
+    public int getLineNumber(int offset) {
+        if (lineIndex != null) {
+            return lineIndex.getLineNumber(offset);
+        }
+        return DynamicIncludeProcessor.countLines(content, offset);
+    }
+}
@@ -0,0 +1,151 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes the id of a title in a single pass over its characters.
+ * <p>
+ * The result is the same as the one of the regex based implementation: remove {@code /}, replace every non-word code point with a space, trim, lower case and finally replace each run of spaces with the separator.
+ */
+class Slugifier {
+
+    private static final int MAX_CACHE_SIZE = 10_000;
+
+    private static final Map<CacheKey, String> CACHE = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+
+    static String slugify(String text, String idprefix, String idseparator) {
+        if (!isSupported(idseparator)) {
+            return slugifyWithRegex(text, idprefix, idseparator);
+        }
+        CacheKey key = new CacheKey(text, idprefix, idseparator);
+        String result = CACHE.get(key);
+        if (result == null) {
+            result = compute(text, idprefix, idseparator);
+            if (CACHE.size() >= MAX_CACHE_SIZE) {
+                CACHE.clear();
+            }
+            CACHE.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Locales with special casing rules for {@code I} and separators with special meaning in a regex replacement are left to the regex based implementation.
+     */
+    private static boolean isSupported(String idseparator) {
+        String language = Locale.getDefault()
+                .getLanguage();
+        if ("tr".equals(language) || "az".equals(language)) {
+            return false;
+        }
+        return idseparator == null || (idseparator.indexOf('$') < 0 && idseparator.indexOf('\\') < 0);
+    }
+
+    private static String compute(String text, String idprefix, String idseparator) {
+        StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        if (idprefix != null) {
+            sb.append(idprefix);
+        }
+        int start = sb.length();
+        int pendingSpaces = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '/') {
+                continue;
+            }
+            if (isWordCharacter(c)) {
+                if (pendingSpaces > 0 && sb.length() > start) {
+                    if (idseparator == null) {
+                        for (int j = 0; j < pendingSpaces; j++) {
+                            sb.append(' ');
+                        }
+                    } else {
+                        sb.append(idseparator);
+                    }
+                }
+                pendingSpaces = 0;
+                sb.append(toLowerCase(c));
+            } else {
+                pendingSpaces++;
+                if (Character.isHighSurrogate(c)) {
+                    // a surrogate pair is a single code point, replaced by a single space ('/' are removed first):
+                    int next = i + 1;
+                    while (next < length && text.charAt(next) == '/') {
+                        next++;
+                    }
+                    if (next < length && Character.isLowSurrogate(text.charAt(next))) {
+                        i = next;
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    static String slugifyWithRegex(String text, String idprefix, String idseparator) {
+        StringBuilder sb = new StringBuilder();
+        if (idprefix != null) {
+            sb.append(idprefix);
+        }
+        String anchor = text;
+        anchor = anchor.replace("/", "");
+        anchor = anchor.replaceAll("[^\\w]", " ");
+        anchor = anchor.trim();
+        anchor = anchor.toLowerCase();
+        if (idseparator != null) {
+            anchor = anchor.replaceAll("\\s+", idseparator);
+        }
+        sb.append(anchor);
+        return sb.toString();
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static char toLowerCase(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c;
+    }
+
+    private Slugifier() {
+    }
+
+    private static class CacheKey {
+        private final String text;
+        private final String idprefix;
+        private final String idseparator;
+
+        CacheKey(String text, String idprefix, String idseparator) {
+            this.text = text;
+            this.idprefix = idprefix;
+            this.idseparator = idseparator;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, idprefix, idseparator);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return Objects.equals(text, other.text) && Objects.equals(idprefix, other.idprefix) && Objects.equals(idseparator, other.idseparator);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+/**
+ * Line oriented scanner finding the section titles ({@code = Title} up to {@code ===== Title}, optionally commented with {@code //}) of an AsciiDoc content.
+ * <p>
+ * Lines located inside listing ({@code ----}), literal ({@code ....}), passthrough ({@code ++++}) and comment ({@code ////}) blocks are ignored.
+ * <p>
+ * Outside of those blocks, a line is a title when it matches {@code ^(\/?\/? *)(={1,5})(.+)}, the offsets are the ones of the corresponding regex match.
+ * <p>
+ * The line starts are collected during the scan, see {@link #getLineIndex()}.
+ */
+public class TitleScanner {
+
+    private static final int MAX_LEVEL = 5;
+
+    private final CharSequence content;
+    private int position = 0;
+    private String blockDelimiter;
+    private final LineIndex.Builder lineStarts = new LineIndex.Builder();
+
+    private TitleType titleType;
+    private int titleLevel;
+    private String title;
+    private int titleStart;
+    private int titleEnd;
+
+    public TitleScanner(CharSequence content) {
+        this.content = content;
+    }
+
+    /**
+     * Moves to the next title.
+     *
+     * @return {@code true} if a title was found, the getters can then be used to read its information.
+     */
+    public boolean find() {
+        int length = content.length();
+        while (position < length) {
+            int lineStart = position;
+            int lineEnd = findLineEnd(lineStart);
+            position = skipLineTerminator(lineEnd);
+            if (lineEnd < length && (content.charAt(lineEnd) == '\n' || content.charAt(lineEnd) == '\r')) {
+                lineStarts.add(position);
+            }
+
+            if (blockDelimiter != null) {
+                if (isLine(lineStart, lineEnd, blockDelimiter)) {
+                    blockDelimiter = null;
+                }
+            } else if (isBlockDelimiter(lineStart, lineEnd)) {
+                blockDelimiter = content.subSequence(lineStart, trimEnd(lineStart, lineEnd))
+                        .toString();
+            } else if (matchTitle(lineStart, lineEnd)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public TitleType getTitleType() {
+        return titleType;
+    }
+
+    public int getTitleLevel() {
+        return titleLevel;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getTitleStart() {
+        return titleStart;
+    }
+
+    public int getTitleEnd() {
+        return titleEnd;
+    }
+
+    /**
+     * @return the line starts of the lines scanned so far, the index covers the whole content once {@link #find()} has returned {@code false}.
+     */
+    public LineIndex getLineIndex() {
+        return lineStarts.build(content.length());
+    }
+
+    private boolean matchTitle(int lineStart, int lineEnd) {
+        int i = lineStart;
+        if (i < lineEnd && content.charAt(i) == '/') {
+            i++;
+        }
+        if (i < lineEnd && content.charAt(i) == '/') {
+            i++;
+        }
+        while (i < lineEnd && content.charAt(i) == ' ') {
+            i++;
+        }
+        int levelStart = i;
+        while (i < lineEnd && content.charAt(i) == '=') {
+            i++;
+        }
+        int level = Math.min(i - levelStart, MAX_LEVEL);
+        if (levelStart + level == lineEnd) {
+            // the title text needs at least one character, it takes the last '=':
+            level--;
+        }
+        if (level < 1) {
+            return false;
+        }
+        titleType = (levelStart > lineStart) ? TitleType.COMMENTED : TitleType.PRESENT;
+        titleLevel = level;
+        title = content.subSequence(levelStart + level, lineEnd)
+                .toString()
+                .trim();
+        titleStart = lineStart;
+        titleEnd = lineEnd;
+        return true;
+    }
+
+    private boolean isBlockDelimiter(int lineStart, int lineEnd) {
+        int end = trimEnd(lineStart, lineEnd);
+        if (end - lineStart < 4) {
+            return false;
+        }
+        char c = content.charAt(lineStart);
+        if (c != '-' && c != '.' && c != '+' && c != '/') {
+            return false;
+        }
+        for (int i = lineStart + 1; i < end; i++) {
+            if (content.charAt(i) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isLine(int lineStart, int lineEnd, String expected) {
+        int end = trimEnd(lineStart, lineEnd);
+        if (end - lineStart != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (content.charAt(lineStart + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int trimEnd(int lineStart, int lineEnd) {
+        int end = lineEnd;
+        while (end > lineStart && (content.charAt(end - 1) == ' ' || content.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+    private int findLineEnd(int lineStart) {
+        int length = content.length();
+        for (int i = lineStart; i < length; i++) {
+            if (isLineTerminator(content.charAt(i))) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private int skipLineTerminator(int lineEnd) {
+        if (lineEnd < content.length() && content.charAt(lineEnd) == '\r' && lineEnd + 1 < content.length() && content.charAt(lineEnd + 1) == '\n') {
+            return lineEnd + 2;
+        }
+        return lineEnd + 1;
+    }
+
+    /**
+     * Same line terminators as the ones used by {@link java.util.regex.Pattern} without the {@code UNIX_LINES} flag.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
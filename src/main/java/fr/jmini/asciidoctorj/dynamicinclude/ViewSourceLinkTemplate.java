@@ -0,0 +1,187 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import fr.jmini.asciidoctorj.dynamicinclude.path.PathUtil;
+import fr.jmini.utils.substringfinder.Range;
+import fr.jmini.utils.substringfinder.SubstringFinder;
+
+/**
+ * The {@code view-source-link-pattern} compiled once per directive into literal and file segments.
+ * <p>
+ * The document attributes (including the folders used by the {@code {file-relative-to-*}} placeholders) are resolved when the template is compiled, rendering the link of a file only computes its path. The result is the same as
+ * {@link DynamicIncludeProcessor#resolveAttributesInViewSourceLinkPattern(String, Path, Function)}, which is still used for the patterns that can not be compiled (missing folder attribute, circular definition) and for the file paths containing a <code>{</code>.
+ */
+public class ViewSourceLinkTemplate {
+
+    private static final SubstringFinder SINGLE_CURLY_BRACKET_FINDER = SubstringFinder.define("{", "}");
+
+    private final String pattern;
+    private final Function<String, Optional<String>> attributeResolver;
+    private final List<Segment> segments;
+
+    private ViewSourceLinkTemplate(String pattern, Function<String, Optional<String>> attributeResolver, List<Segment> segments) {
+        this.pattern = pattern;
+        this.attributeResolver = attributeResolver;
+        this.segments = segments;
+    }
+
+    public static ViewSourceLinkTemplate compile(String pattern, Function<String, Optional<String>> attributeResolver) {
+        List<Segment> segments = new ArrayList<>();
+        boolean compiled = compile(pattern, attributeResolver, Collections.emptyList(), segments);
+        return new ViewSourceLinkTemplate(pattern, attributeResolver, compiled ? Collections.unmodifiableList(segments) : null);
+    }
+
+    private static boolean compile(String value, Function<String, Optional<String>> attributeResolver, List<String> stack, List<Segment> segments) {
+        List<Range> ranges = SINGLE_CURLY_BRACKET_FINDER.findAll(value, false);
+        int position = 0;
+        for (Range range : ranges) {
+            addText(segments, value.substring(position, range.getRangeStart()));
+            String key = value.substring(range.getContentStart(), range.getContentEnd());
+            if (stack.contains(key)) {
+                return false;
+            }
+            String placeholderLowerCase = key.toLowerCase();
+            switch (placeholderLowerCase) {
+            case "file-relative-to-git-repository":
+                if (!addRelativePath(segments, attributeResolver.apply("local-git-repository-path"))) {
+                    return false;
+                }
+                break;
+            case "file-relative-to-gradle-projectdir":
+                if (!addRelativePath(segments, attributeResolver.apply("gradle-projectdir"))) {
+                    return false;
+                }
+                break;
+            case "file-relative-to-gradle-rootdir":
+                if (!addRelativePath(segments, attributeResolver.apply("gradle-rootdir"))) {
+                    return false;
+                }
+                break;
+            case "file-absolute-with-leading-slash":
+                segments.add(new Segment(SegmentType.ABSOLUTE_PATH, null, null));
+                break;
+            default:
+                Optional<String> replacement = attributeResolver.apply(placeholderLowerCase);
+                if (replacement.isPresent()) {
+                    List<String> newStack = new ArrayList<>(stack);
+                    newStack.add(key);
+                    if (!compile(replacement.get(), attributeResolver, newStack, segments)) {
+                        return false;
+                    }
+                } else {
+                    addText(segments, value.substring(range.getRangeStart(), range.getRangeEnd()));
+                }
+                break;
+            }
+            position = range.getRangeEnd();
+        }
+        addText(segments, value.substring(position));
+        return true;
+    }
+
+    private static void addText(List<Segment> segments, String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        int last = segments.size() - 1;
+        if (last >= 0 && segments.get(last)
+                .getType() == SegmentType.TEXT) {
+            segments.set(last, new Segment(SegmentType.TEXT, segments.get(last)
+                    .getText() + text, null));
+        } else {
+            segments.add(new Segment(SegmentType.TEXT, text, null));
+        }
+    }
+
+    private static boolean addRelativePath(List<Segment> segments, Optional<String> folderPath) {
+        if (!folderPath.isPresent()) {
+            return false;
+        }
+        Path folder = Paths.get(folderPath.get())
+                .normalize();
+        segments.add(new Segment(SegmentType.RELATIVE_PATH, null, folder));
+        return true;
+    }
+
+    /**
+     * @return the URL of the view source link of the file.
+     */
+    public String render(Path file) {
+        if (segments == null) {
+            return DynamicIncludeProcessor.resolveAttributesInViewSourceLinkPattern(pattern, file, attributeResolver);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Segment segment : segments) {
+            String text;
+            switch (segment.getType()) {
+            case RELATIVE_PATH:
+                text = PathUtil.normalizePath(segment.getFolder()
+                        .relativize(file));
+                break;
+            case ABSOLUTE_PATH:
+                text = PathUtil.normalizePath(file.toAbsolutePath());
+                if (!text.startsWith("/")) {
+                    text = "/" + text;
+                }
+                break;
+            default:
+                sb.append(segment.getText());
+                continue;
+            }
+            if (text.indexOf('{') >= 0) {
+                // a path that looks like an attribute reference is resolved as well:
+                return DynamicIncludeProcessor.resolveAttributesInViewSourceLinkPattern(pattern, file, attributeResolver);
+            }
+            sb.append(text);
+        }
+        return sb.toString();
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return {@code true} when the pattern was compiled, {@code false} when each link is resolved from the pattern.
+     */
+    public boolean isCompiled() {
+        return segments != null;
+    }
+
+    private enum SegmentType {
+        TEXT,
+        RELATIVE_PATH,
+        ABSOLUTE_PATH
+    }
+
+    private static class Segment {
+        private final SegmentType type;
+        private final String text;
+        private final Path folder;
+
+        Segment(SegmentType type, String text, Path folder) {
+            this.type = type;
+            this.text = text;
+            this.folder = folder;
+        }
+
+        SegmentType getType() {
+            return type;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        Path getFolder() {
+            return folder;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package fr.jmini.asciidoctorj.dynamicinclude.path;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of the files found by a directory walk, keyed by walk root and glob pattern.
+ * <p>
+ * An entry stays valid as long as the modification time of every directory visited during the walk is unchanged (adding, removing or renaming an entry in a directory updates its modification time).
+ */
+class FileScanCache {
+
+    private final Map<ScanKey, ScanResult> entries = new ConcurrentHashMap<>();
+
+    List<Path> get(Path walkRoot, String pattern) {
+        ScanKey key = new ScanKey(walkRoot, pattern);
+        ScanResult result = entries.get(key);
+        if (result == null) {
+            return null;
+        }
+        if (!result.isUpToDate()) {
+            entries.remove(key, result);
+            return null;
+        }
+        return result.getFiles();
+    }
+
+    void put(Path walkRoot, String pattern, List<Path> files, Map<Path, FileTime> directoryTimes) {
+        entries.put(new ScanKey(walkRoot, pattern), new ScanResult(files, directoryTimes));
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    static FileTime readLastModifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static class ScanKey {
+        private final Path walkRoot;
+        private final String pattern;
+
+        ScanKey(Path walkRoot, String pattern) {
+            this.walkRoot = walkRoot;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(walkRoot, pattern);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ScanKey)) {
+                return false;
+            }
+            ScanKey other = (ScanKey) obj;
+            return Objects.equals(walkRoot, other.walkRoot) && Objects.equals(pattern, other.pattern);
+        }
+    }
+
+    private static class ScanResult {
+        private final List<Path> files;
+        private final Map<Path, FileTime> directoryTimes;
+
+        ScanResult(List<Path> files, Map<Path, FileTime> directoryTimes) {
+            this.files = Collections.unmodifiableList(files);
+            this.directoryTimes = directoryTimes;
+        }
+
+        List<Path> getFiles() {
+            return files;
+        }
+
+        boolean isUpToDate() {
+            for (Map.Entry<Path, FileTime> entry : directoryTimes.entrySet()) {
+                if (!Objects.equals(entry.getValue(), readLastModifiedTime(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
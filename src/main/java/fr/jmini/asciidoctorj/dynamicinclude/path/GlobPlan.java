@@ -0,0 +1,109 @@
+package fr.jmini.asciidoctorj.dynamicinclude.path;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Directory level view of a glob, relative to its walk root.
+ * <p>
+ * Each segment of the glob below the walk root has its own matcher, a directory is skipped as soon as one of its names does not match the corresponding segment.
+ * <p>
+ * When the glob does not contain {@code **}, the depth of the walk is limited to the number of segments.
+ */
+class GlobPlan {
+
+    private static final GlobPlan UNRESTRICTED = new GlobPlan(Collections.emptyList(), 0, Integer.MAX_VALUE);
+
+    private final List<PathMatcher> directoryMatchers;
+    private final int segmentCount;
+    private final int maxDepth;
+
+    private GlobPlan(List<PathMatcher> directoryMatchers, int segmentCount, int maxDepth) {
+        this.directoryMatchers = directoryMatchers;
+        this.segmentCount = segmentCount;
+        this.maxDepth = maxDepth;
+    }
+
+    static GlobPlan compile(List<String> segments) {
+        if (segments.isEmpty()) {
+            return UNRESTRICTED;
+        }
+        for (String segment : segments) {
+            if (!isBalanced(segment)) {
+                // a group like '{a/b,c}' spans several segments, the segments can not be matched individually:
+                return UNRESTRICTED;
+            }
+        }
+        List<PathMatcher> directoryMatchers = new ArrayList<>();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            String segment = segments.get(i);
+            if (segment.contains("**")) {
+                return new GlobPlan(directoryMatchers, segments.size(), Integer.MAX_VALUE);
+            }
+            directoryMatchers.add(FileSystems.getDefault()
+                    .getPathMatcher("glob:" + segment));
+        }
+        if (segments.get(segments.size() - 1)
+                .contains("**")) {
+            return new GlobPlan(directoryMatchers, segments.size(), Integer.MAX_VALUE);
+        }
+        return new GlobPlan(directoryMatchers, segments.size(), segments.size());
+    }
+
+    /**
+     * @return the maximum number of levels below the walk root that can contain matching files.
+     */
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return {@code true} when matching files can only be direct children of the walk root.
+     */
+    boolean isSingleDirectory() {
+        return segmentCount == 1 && maxDepth == 1;
+    }
+
+    /**
+     * @param directory
+     *            the walk root or a directory below it
+     * @param depth
+     *            number of levels between the walk root and the directory ({@code 0} for the walk root, {@code 1} for a direct child)
+     * @return {@code false} when no file located in the directory or in its sub-directories can match the glob.
+     */
+    boolean canContainMatches(Path directory, int depth) {
+        if (depth >= maxDepth) {
+            return false;
+        }
+        int index = depth - 1;
+        if (index < 0 || index >= directoryMatchers.size()) {
+            return true;
+        }
+        return directoryMatchers.get(index)
+                .matches(directory.getFileName());
+    }
+
+    private static boolean isBalanced(String segment) {
+        int braces = 0;
+        int brackets = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '{') {
+                braces++;
+            } else if (c == '}') {
+                braces--;
+            } else if (c == '[') {
+                brackets++;
+            } else if (c == ']') {
+                brackets--;
+            }
+        }
+        return braces == 0 && brackets == 0;
+    }
+}
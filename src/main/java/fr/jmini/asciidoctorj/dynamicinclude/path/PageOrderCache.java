@@ -0,0 +1,65 @@
+package fr.jmini.asciidoctorj.dynamicinclude.path;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import fr.jmini.utils.pathorder.SortConfig;
+
+/**
+ * Process-wide cache of the page order configuration ({@code pages.yaml} file) of each directory.
+ * <p>
+ * An entry stays valid as long as the modification time of the {@code pages.yaml} file is unchanged. Directories without {@code pages.yaml} file are cached as well.
+ */
+class PageOrderCache {
+
+    static final String PAGES_FILE_NAME = "pages.yaml";
+
+    private final Map<Path, PageOrder> entries = new ConcurrentHashMap<>();
+    private final Function<Path, SortConfig> loader;
+
+    /**
+     * @param loader
+     *            reads an existing {@code pages.yaml} file
+     */
+    PageOrderCache(Function<Path, SortConfig> loader) {
+        this.loader = loader;
+    }
+
+    SortConfig get(Path directory) {
+        Path pagesFile = directory.resolve(PAGES_FILE_NAME);
+        FileTime lastModifiedTime = FileScanCache.readLastModifiedTime(pagesFile);
+        PageOrder pageOrder = entries.get(directory);
+        if (pageOrder == null || !Objects.equals(pageOrder.getLastModifiedTime(), lastModifiedTime)) {
+            SortConfig sortConfig = (lastModifiedTime != null) ? loader.apply(pagesFile) : null;
+            pageOrder = new PageOrder(lastModifiedTime, sortConfig);
+            entries.put(directory, pageOrder);
+        }
+        return pageOrder.getSortConfig();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    private static class PageOrder {
+        private final FileTime lastModifiedTime;
+        private final SortConfig sortConfig;
+
+        PageOrder(FileTime lastModifiedTime, SortConfig sortConfig) {
+            this.lastModifiedTime = lastModifiedTime;
+            this.sortConfig = sortConfig;
+        }
+
+        FileTime getLastModifiedTime() {
+            return lastModifiedTime;
+        }
+
+        SortConfig getSortConfig() {
+            return sortConfig;
+        }
+    }
+}
@@ -2,23 +2,33 @@ package fr.jmini.asciidoctorj.dynamicinclude.path;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
 
 import fr.jmini.utils.pathorder.AbsolutePathComparator;
 import fr.jmini.utils.pathorder.Order;
@@ -28,33 +38,88 @@ import fr.jmini.utils.pathorder.SortConfig;
 public class PathUtil {
     private static final String STAR_REPLACEMENT = "__STAR__";
 
+    private static final FileScanCache SCAN_CACHE = new FileScanCache();
+
+    private static final Yaml PAGES_YAML = new Yaml(new PagesConstructor());
+
+    private static final PageOrderCache PAGE_ORDER_CACHE = new PageOrderCache(PathUtil::readPageOrder);
+
     public static List<Path> findFiles(Path dir, String glob, List<String> nameSuffixes) {
         Path normalizedGlob = dir.resolve(sanitizeStringPath(glob))
                 .normalize();
+        String pattern = unsanitizeStringPath(normalizePath(normalizedGlob)
+                .replace('\\', '/'));
+        Path walkRoot = findWalkRoot(normalizedGlob);
+
+        List<Path> files = SCAN_CACHE.get(walkRoot, pattern);
+        if (files == null) {
+            files = walkFiles(walkRoot, pattern, toGlobPlan(normalizedGlob));
+        }
+
+        List<Path> result = new ArrayList<>();
+        for (Path file : files) {
+            String fileName = file.toFile()
+                    .getName();
+            String nameSuffix = getNameSuffix(fileName);
+            if (nameSuffix == null || nameSuffixes.contains(nameSuffix)) {
+                result.add(file);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Remove all the results of previous directory walks, so that the next {@link #findFiles(Path, String, List)} calls walk the file system again.
+     */
+    public static void clearScanCache() {
+        SCAN_CACHE.clear();
+    }
+
+    private static List<Path> walkFiles(Path walkRoot, String pattern, GlobPlan plan) {
         final PathMatcher matcher = FileSystems.getDefault()
-                .getPathMatcher("glob:" + unsanitizeStringPath(normalizePath(normalizedGlob)
-                        .replace('\\', '/')));
+                .getPathMatcher("glob:" + pattern);
 
         List<Path> result = new ArrayList<>();
-        try {
-            Path walkRoot = findWalkRoot(normalizedGlob);
-            Files.walkFileTree(walkRoot, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (matcher.matches(file)) {
-                        String fileName = file.toFile()
-                                .getName();
-                        String nameSuffix = getNameSuffix(fileName);
-                        if (nameSuffix != null) {
-                            if (nameSuffixes.contains(nameSuffix)) {
-                                result.add(file.toAbsolutePath()
-                                        .normalize());
-                            }
-                        } else {
+        Map<Path, FileTime> directoryTimes = new HashMap<>();
+        directoryTimes.put(walkRoot, FileScanCache.readLastModifiedTime(walkRoot));
+        if (plan.isSingleDirectory()) {
+            if (Files.isDirectory(walkRoot)) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(walkRoot)) {
+                    for (Path file : stream) {
+                        if (!Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS) && matcher.matches(file)) {
                             result.add(file.toAbsolutePath()
                                     .normalize());
                         }
                     }
+                } catch (IOException e) {
+                    //TODO: do something else with the exception
+                    e.printStackTrace();
+                    return result;
+                }
+            }
+            SCAN_CACHE.put(walkRoot, pattern, result, directoryTimes);
+            return result;
+        }
+        try {
+            Files.walkFileTree(walkRoot, EnumSet.noneOf(FileVisitOption.class), plan.getMaxDepth(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs) throws IOException {
+                    // the relative path of the walk root itself is the empty path, which has one name:
+                    int depth = directory.equals(walkRoot) ? 0 : walkRoot.relativize(directory)
+                            .getNameCount();
+                    if (!plan.canContainMatches(directory, depth)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    directoryTimes.put(directory, attrs.lastModifiedTime());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (!attrs.isDirectory() && matcher.matches(file)) {
+                        result.add(file.toAbsolutePath()
+                                .normalize());
+                    }
                     return FileVisitResult.CONTINUE;
                 }
 
@@ -66,8 +131,21 @@ public class PathUtil {
         } catch (IOException e) {
             //TODO: do something else with the exception
             e.printStackTrace();
+            return result;
         }
-        return Collections.unmodifiableList(result);
+        SCAN_CACHE.put(walkRoot, pattern, result, directoryTimes);
+        return result;
+    }
+
+    private static GlobPlan toGlobPlan(Path normalizedGlob) {
+        List<String> segments = new ArrayList<>();
+        for (Path path : normalizedGlob) {
+            String name = path.toString();
+            if (!segments.isEmpty() || name.contains(STAR_REPLACEMENT)) {
+                segments.add(unsanitizeStringPath(name));
+            }
+        }
+        return GlobPlan.compile(segments);
     }
 
     public static List<Path> filterCurrentFile(List<Path> files, Path currentFile) {
@@ -77,10 +155,23 @@ public class PathUtil {
     }
 
     public static List<Path> sortFiles(Consumer<String> logger, List<Path> list, List<String> suffixes) {
-        AbsolutePathComparator comparator = new AbsolutePathComparator(PathUtil::loadPageOrder, suffixes, Order.NATURAL);
-        List<Path> result = list.stream()
-                .sorted(comparator)
-                .collect(Collectors.toList());
+        return sortFiles(logger, list, suffixes, PathUtil::loadPageOrder);
+    }
+
+    /**
+     * The comparator looks up the page order of the directories in every comparison, the page order of each directory is loaded only once per sort (a single {@link PageOrderCache} lookup, and so a
+     * single check of the {@code pages.yaml} file, per directory).
+     * <p>
+     * This is the only work saved: the ordering itself is still computed by {@link AbsolutePathComparator} in every comparison, the path-order library does not expose a sort key that could be computed once per
+     * path without duplicating its ordering rules.
+     */
+    static List<Path> sortFiles(Consumer<String> logger, List<Path> list, List<String> suffixes, Function<Path, SortConfig> pageOrderLoader) {
+        Map<Path, Optional<SortConfig>> pageOrders = new HashMap<>();
+        Function<Path, SortConfig> memoizedLoader = (Path path) -> pageOrders.computeIfAbsent(path, p -> Optional.ofNullable(pageOrderLoader.apply(p)))
+                .orElse(null);
+        AbsolutePathComparator comparator = new AbsolutePathComparator(memoizedLoader, suffixes, Order.NATURAL);
+        List<Path> result = new ArrayList<>(list);
+        result.sort(comparator);
         comparator.getMessages()
                 .stream()
                 .sorted()
@@ -89,21 +180,31 @@ public class PathUtil {
     }
 
     static SortConfig loadPageOrder(Path path) {
-        if (Files.isDirectory(path)) {
-            Path yamlFile = path.resolve("pages.yaml");
-            if (Files.isReadable(yamlFile)) {
-                Yaml yaml = new Yaml();
-                try (InputStream inputStream = Files.newInputStream(yamlFile)) {
-                    return yaml.loadAs(inputStream, Pages.class);
-                } catch (IOException e) {
-                    //TODO do something with this exception
-                    e.printStackTrace();
+        return PAGE_ORDER_CACHE.get(path);
+    }
+
+    static SortConfig readPageOrder(Path yamlFile) {
+        if (Files.isReadable(yamlFile)) {
+            try (InputStream inputStream = Files.newInputStream(yamlFile)) {
+                // Yaml instances are not thread-safe:
+                synchronized (PAGES_YAML) {
+                    return PAGES_YAML.loadAs(inputStream, Pages.class);
                 }
+            } catch (IOException e) {
+                //TODO do something with this exception
+                e.printStackTrace();
             }
         }
         return null;
     }
 
+    /**
+     * Clears the cache of the {@code pages.yaml} files. The cached entries are checked against the modification time of the files, clearing the cache is only necessary when a file is modified without changing its modification time.
+     */
+    public static void clearPageOrderCache() {
+        PAGE_ORDER_CACHE.clear();
+    }
+
     static Path getCommonPath(Path p1, Path p2) {
         if (Objects.equals(p1, p2)) {
             return p1;
@@ -206,4 +307,23 @@ public class PathUtil {
 
     private PathUtil() {
     }
+
+    /**
+     * Constructor for {@code pages.yaml} files: global tags can only reference the classes of the path-order library.
+     */
+    private static class PagesConstructor extends Constructor {
+        private static final String PATH_ORDER_PACKAGE = "fr.jmini.utils.pathorder.";
+
+        PagesConstructor() {
+            super(Pages.class);
+        }
+
+        @Override
+        protected Class<?> getClassForName(String name) throws ClassNotFoundException {
+            if (!name.startsWith(PATH_ORDER_PACKAGE)) {
+                throw new ClassNotFoundException("Class not allowed in " + PageOrderCache.PAGES_FILE_NAME + ": " + name);
+            }
+            return super.getClassForName(name);
+        }
+    }
 }
@@ -0,0 +1,190 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import java.nio.file.Path;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * {@link FlightRecorderEvents} implementation based on the {@code jdk.jfr} API, loaded by reflection on Java 11 and later.
+ */
+class JfrFlightRecorderEvents implements FlightRecorderEvents {
+
+    private static final String CATEGORY = "Asciidoctor";
+    private static final String SUB_CATEGORY = "Dynamic Include";
+
+    private final EventType directiveType = EventType.getEventType(DirectiveEvent.class);
+    private final EventType directoryWalkType = EventType.getEventType(DirectoryWalkEvent.class);
+    private final EventType fileReadType = EventType.getEventType(FileReadEvent.class);
+    private final EventType xrefRewriteType = EventType.getEventType(XrefRewriteEvent.class);
+
+    @Override
+    public Object beginDirective() {
+        if (!directiveType.isEnabled()) {
+            return null;
+        }
+        DirectiveEvent event = new DirectiveEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitDirective(Object event, String glob, Path dir, int fileCount, long byteCount) {
+        if (event == null) {
+            return;
+        }
+        DirectiveEvent e = (DirectiveEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.glob = glob;
+            e.directory = dir.toString();
+            e.fileCount = fileCount;
+            e.byteCount = byteCount;
+            e.commit();
+        }
+    }
+
+    @Override
+    public Object beginDirectoryWalk() {
+        if (!directoryWalkType.isEnabled()) {
+            return null;
+        }
+        DirectoryWalkEvent event = new DirectoryWalkEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitDirectoryWalk(Object event, String glob, Path dir, int fileCount) {
+        if (event == null) {
+            return;
+        }
+        DirectoryWalkEvent e = (DirectoryWalkEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.glob = glob;
+            e.directory = dir.toString();
+            e.fileCount = fileCount;
+            e.commit();
+        }
+    }
+
+    @Override
+    public Object beginFileRead() {
+        if (!fileReadType.isEnabled()) {
+            return null;
+        }
+        FileReadEvent event = new FileReadEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitFileRead(Object event, Path file, long byteCount) {
+        if (event == null) {
+            return;
+        }
+        FileReadEvent e = (FileReadEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.file = file.toString();
+            e.byteCount = byteCount;
+            e.commit();
+        }
+    }
+
+    @Override
+    public Object beginXrefRewrite() {
+        if (!xrefRewriteType.isEnabled()) {
+            return null;
+        }
+        XrefRewriteEvent event = new XrefRewriteEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitXrefRewrite(Object event, Path file, int length) {
+        if (event == null) {
+            return;
+        }
+        XrefRewriteEvent e = (XrefRewriteEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.file = file.toString();
+            e.length = length;
+            e.commit();
+        }
+    }
+
+    @Name("fr.jmini.asciidoctorj.dynamicinclude.Directive")
+    @Label("Dynamic Include Directive")
+    @Description("Processing of an include::dynamic:...[] directive")
+    @Category({ CATEGORY, SUB_CATEGORY })
+    @StackTrace(false)
+    static class DirectiveEvent extends Event {
+        @Label("Glob")
+        String glob;
+
+        @Label("Directory")
+        String directory;
+
+        @Label("File Count")
+        int fileCount;
+
+        @Label("Byte Count")
+        @Description("Bytes read from the disk, the files found in the parsed file cache are not counted")
+        @DataAmount
+        long byteCount;
+    }
+
+    @Name("fr.jmini.asciidoctorj.dynamicinclude.DirectoryWalk")
+    @Label("Dynamic Include Directory Walk")
+    @Description("Search of the files matching the glob of a directive")
+    @Category({ CATEGORY, SUB_CATEGORY })
+    @StackTrace(false)
+    static class DirectoryWalkEvent extends Event {
+        @Label("Glob")
+        String glob;
+
+        @Label("Directory")
+        String directory;
+
+        @Label("File Count")
+        int fileCount;
+    }
+
+    @Name("fr.jmini.asciidoctorj.dynamicinclude.FileRead")
+    @Label("Dynamic Include File Read")
+    @Description("Reading of an included file that was not found in the parsed file cache")
+    @Category({ CATEGORY, SUB_CATEGORY })
+    @StackTrace(false)
+    static class FileReadEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Byte Count")
+        @DataAmount
+        long byteCount;
+    }
+
+    @Name("fr.jmini.asciidoctorj.dynamicinclude.XrefRewrite")
+    @Label("Dynamic Include Xref Rewrite")
+    @Description("Rewriting of the xref links of an included file")
+    @Category({ CATEGORY, SUB_CATEGORY })
+    @StackTrace(false)
+    static class XrefRewriteEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Length")
+        @Description("Number of characters of the content")
+        int length;
+    }
+}
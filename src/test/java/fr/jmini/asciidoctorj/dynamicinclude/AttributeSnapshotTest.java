@@ -0,0 +1,54 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+class AttributeSnapshotTest {
+
+    @Test
+    void testGetAttribute() throws Exception {
+        Map<String, String> map = new HashMap<>();
+        map.put("idprefix", "");
+        map.put("aaa", "AAA");
+        AttributeSnapshot snapshot = new AttributeSnapshot(map);
+        map.put("bbb", "BBB");
+
+        assertThat(snapshot.hasAttribute("aaa")).isTrue();
+        assertThat(snapshot.hasAttribute("bbb")).isFalse();
+        assertThat(snapshot.apply("aaa")).isEqualTo(Optional.of("AAA"));
+        assertThat(snapshot.apply("bbb")).isEqualTo(Optional.empty());
+        assertThat(snapshot.getAttribute("idprefix", "_")).isEqualTo("");
+        assertThat(snapshot.getAttribute("idseparator", "_")).isEqualTo("_");
+        assertThat(snapshot.getAttributes()).hasSize(2);
+    }
+
+    @Test
+    void testResolveAttributes() throws Exception {
+        Map<String, String> map = new HashMap<>();
+        map.put("aaa", "AAA");
+        map.put("bbb", "this BBB is {aaa}");
+        map.put("foo", "this is {bar}");
+        map.put("bar", "this is {foo}");
+        AttributeSnapshot snapshot = new AttributeSnapshot(map);
+
+        String value = "{bbb} and {aaa}";
+        String resolved = snapshot.resolveAttributes(value);
+        assertThat(resolved).isEqualTo("this BBB is AAA and AAA");
+        assertThat(snapshot.resolveAttributes(value)).isSameAs(resolved);
+        assertThat(DynamicIncludeProcessor.resolveAttributes(value, snapshot)).isSameAs(resolved);
+
+        String noAttribute = "folder/page.adoc";
+        assertThat(snapshot.resolveAttributes(noAttribute)).isSameAs(noAttribute);
+        assertThat(snapshot.resolveAttributes("Test {xxx}!")).isEqualTo("Test {xxx}!");
+
+        // Failures are not memoized:
+        assertThatThrownBy(() -> snapshot.resolveAttributes("Check {foo}!")).hasMessage("Can not evaluate the value of '{foo}', because of following circular definition: {foo} -> {bar} -> {foo}");
+        assertThatThrownBy(() -> snapshot.resolveAttributes("Check {foo}!")).hasMessage("Can not evaluate the value of '{foo}', because of following circular definition: {foo} -> {bar} -> {foo}");
+    }
+}
@@ -0,0 +1,123 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import org.junit.jupiter.api.Test;
+
+class ContentReaderTest {
+
+    private static final String TEXT = "= Page \u00e9t\u00e9\n\nSome \u20ac and \ud83d\ude00 characters\n\n== Section \u00e0\n";
+
+    @Test
+    void testReadSmallFile() throws Exception {
+        Path file = write(TEXT.getBytes(StandardCharsets.UTF_8));
+
+        ContentReader.Content content = ContentReader.read(file, 1024);
+        assertThat(content.getText()).isInstanceOf(String.class);
+        assertThat(content.getText()).isEqualTo(TEXT);
+        assertThat(content.getByteCount()).isEqualTo((long) TEXT.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void testReadMappedFile() throws Exception {
+        byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+        Path file = write(bytes);
+
+        ContentReader.Content content = ContentReader.read(file, 0);
+        assertThat(content.getText()).isInstanceOf(CharBuffer.class);
+        assertThat(content.getText()
+                .toString()).isEqualTo(TEXT);
+        assertThat(content.getByteCount()).isEqualTo((long) bytes.length);
+
+        // Multi-byte sequences split between two chunks:
+        for (int chunkSize = 4; chunkSize < 12; chunkSize++) {
+            assertThat(ContentReader.read(file, 0, chunkSize, ContentReader.MAX_POOLED_CHARS, ContentReader.MAX_MAPPED_CHARS)
+                    .getText()
+                    .toString()).isEqualTo(TEXT);
+        }
+
+        // The buffer of the thread is reused:
+        CharSequence buffer = content.getText();
+        Path smallerFile = write("= Other\n".getBytes(StandardCharsets.UTF_8));
+        CharSequence text = ContentReader.read(smallerFile, 0)
+                .getText();
+        assertThat(text).isSameAs(buffer);
+        assertThat(text.toString()).isEqualTo("= Other\n");
+
+        // The buffer of a larger file is not pooled:
+        CharSequence largeText = ContentReader.read(file, 0, ContentReader.MAPPED_CHUNK_SIZE, bytes.length - 1, ContentReader.MAX_MAPPED_CHARS)
+                .getText();
+        assertThat(largeText).isNotSameAs(buffer);
+        assertThat(largeText.toString()).isEqualTo(TEXT);
+        assertThat(ContentReader.read(smallerFile, 0, ContentReader.MAPPED_CHUNK_SIZE, bytes.length - 1, ContentReader.MAX_MAPPED_CHARS)
+                .getText()).isSameAs(buffer);
+
+        Path emptyFile = write(new byte[0]);
+        assertThat(ContentReader.read(emptyFile, 0)
+                .getText()
+                .toString()).isEqualTo("");
+    }
+
+    @Test
+    void testReadMappedFileTooLarge() throws Exception {
+        byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+        Path file = write(bytes);
+
+        assertThatThrownBy(() -> ContentReader.read(file, 0, ContentReader.MAPPED_CHUNK_SIZE, ContentReader.MAX_POOLED_CHARS, bytes.length - 1)).isInstanceOf(IOException.class)
+                .hasMessage("File is too large to be memory-mapped: " + bytes.length + " bytes, the limit is " + (bytes.length - 1) + " bytes (a larger file is read into a byte array when the mmap-threshold is above its size)");
+        // Read into a byte array below the threshold:
+        assertThat(ContentReader.read(file, bytes.length + 1, ContentReader.MAPPED_CHUNK_SIZE, ContentReader.MAX_POOLED_CHARS, bytes.length - 1)
+                .getText()).isEqualTo(TEXT);
+        assertThat(ContentReader.MAX_MAPPED_CHARS).isEqualTo(128 * 1024 * 1024);
+    }
+
+    @Test
+    void testReadMappedMalformedFile() throws Exception {
+        byte[] bytes = new byte[] { 'a', (byte) 0xC3, 'b', (byte) 0xFF, 'c', (byte) 0xE2, (byte) 0x82 };
+        Path file = write(bytes);
+
+        assertThat(ContentReader.read(file, 0)
+                .getText()
+                .toString()).isEqualTo(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testDigestMapped() throws Exception {
+        byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+        Path file = write(bytes);
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ContentReader.digestMapped(file, digest);
+        assertThat(digest.digest()).isEqualTo(MessageDigest.getInstance("SHA-256")
+                .digest(bytes));
+    }
+
+    @Test
+    void testParseMappedFile() throws Exception {
+        Path file = write(TEXT.getBytes(StandardCharsets.UTF_8));
+
+        ParsedFileHolder expected = DynamicIncludeProcessor.parseFile(file, "_", "_");
+        ParsedFileHolder parsed = DynamicIncludeProcessor.parseFile(file, "_", "_", 0, null);
+        assertThat(parsed.getContent()).isEqualTo(expected.getContent());
+        assertThat(parsed.getAnchors()).isEqualTo(expected.getAnchors());
+        assertThat(parsed.getTitleAnchorMap()).isEqualTo(expected.getTitleAnchorMap());
+        TitleHolder firstTitle = parsed.getFirstTitle();
+        assertThat(firstTitle.getTitle()).isEqualTo("Page \u00e9t\u00e9");
+        assertThat(firstTitle.getTitleStart()).isEqualTo(expected.getFirstTitle()
+                .getTitleStart());
+    }
+
+    private static Path write(byte[] bytes) throws Exception {
+        Path file = Files.createTempFile("content", ".adoc");
+        Files.write(file, bytes);
+        return file;
+    }
+}
@@ -0,0 +1,129 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class DynamicIncludeOptionsTest {
+
+    @Test
+    void testDefaultValues() throws Exception {
+        List<String> logs = new ArrayList<>();
+        DynamicIncludeOptions options = new DynamicIncludeOptions(logs::add, Collections.emptyMap(), "_", "_");
+        assertThat(options.getSuffixes()).isEmpty();
+        assertThat(options.isExternalXrefAsText()).isFalse();
+        assertThat(options.getLogfile()).isNull();
+        assertThat(options.getLogfileFormat()).isEqualTo(LogfileFormat.TEXT);
+        assertThat(options.getLevelOffsetShifting()).isEqualTo(1);
+        assertThat(options.isDisplayViewSourceLink()).isFalse();
+        assertThat(options.getViewSourceLinkPattern()).isEqualTo("#");
+        assertThat(options.getViewSourceLinkText()).isEqualTo("view source");
+        assertThat(options.isParallel()).isFalse();
+        assertThat(options.getMetadataIndex()).isNull();
+        assertThat(options.getMmapThreshold()).isEqualTo(ContentReader.DEFAULT_MMAP_THRESHOLD);
+        assertThat(options.isLogfileStatistics()).isFalse();
+        assertThat(logs).isEmpty();
+    }
+
+    @Test
+    void testValues() throws Exception {
+        Map<String, String> values = new HashMap<>();
+        values.put("suffixes", "-a:-b");
+        values.put("external-xref-as-text", "");
+        values.put("logfile-format", "json-lines");
+        values.put("level-offset-shifting", "abc");
+        values.put("parallel", "false");
+
+        List<String> logs = new ArrayList<>();
+        DynamicIncludeOptions options = new DynamicIncludeOptions(logs::add, values, "", "-");
+        assertThat(options.getSuffixes()).isEqualTo(Arrays.asList("-a", "-b"));
+        assertThat(options.isExternalXrefAsText()).isTrue();
+        assertThat(options.getLogfileFormat()).isEqualTo(LogfileFormat.JSON_LINES);
+        assertThat(options.getLevelOffsetShifting()).isEqualTo(1);
+        assertThat(options.isParallel()).isTrue();
+        assertThat(options.getIdprefix()).isEqualTo("");
+        assertThat(options.getIdseparator()).isEqualTo("-");
+        assertThat(logs).containsOnly("level-offset-shifting value 'abc' is not a valid number, using 1 as fallback");
+    }
+
+    @Test
+    void testOverlay() throws Exception {
+        List<String> logs = new ArrayList<>();
+        Map<String, String> values = new HashMap<>();
+        values.put("logfile", "log.txt");
+        values.put("level-offset-shifting", "2");
+        DynamicIncludeOptions options = new DynamicIncludeOptions(logs::add, values, "_", "_");
+
+        assertThat(options.overlay(logs::add, Collections.emptyMap())).isSameAs(options);
+        assertThat(options.overlay(logs::add, Collections.singletonMap("leveloffset", "+1"))).isSameAs(options);
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("level-offset-shifting", 0);
+        attributes.put("display-view-source", "");
+        DynamicIncludeOptions overlaid = options.overlay(logs::add, attributes);
+        assertThat(overlaid.getLevelOffsetShifting()).isEqualTo(0);
+        assertThat(overlaid.isDisplayViewSourceLink()).isTrue();
+        assertThat(overlaid.getLogfile()).isEqualTo("log.txt");
+        assertThat(options.getLevelOffsetShifting()).isEqualTo(2);
+        assertThat(options.isDisplayViewSourceLink()).isFalse();
+        assertThat(logs).isEmpty();
+    }
+
+    @Test
+    void testForDocument() throws Exception {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("dynamic-include-level-offset-shifting", "xyz");
+        attributes.put("dynamic-include-suffixes", "-a");
+        attributes.put("other", "value");
+
+        List<String> logs = new ArrayList<>();
+        DynamicIncludeOptions options = DynamicIncludeOptions.forDocument(logs::add, new AttributeSnapshot(attributes));
+        assertThat(options.getSuffixes()).containsExactly("-a");
+        assertThat(options.getLevelOffsetShifting()).isEqualTo(1);
+        assertThat(options.getIdprefix()).isEqualTo("_");
+        assertThat(logs).containsExactly("level-offset-shifting value 'xyz' is not a valid number, using 1 as fallback");
+
+        // Changed values (attribute entries between two directives):
+        attributes.put("dynamic-include-suffixes", "-b");
+        attributes.put("idprefix", "");
+        DynamicIncludeOptions changed = DynamicIncludeOptions.forDocument(logs::add, new AttributeSnapshot(attributes));
+        assertThat(changed.getSuffixes()).containsExactly("-b");
+        assertThat(changed.getIdprefix()).isEqualTo("");
+    }
+
+    @Test
+    void testForDocumentCache() throws Exception {
+        DynamicIncludeOptions.clearDocumentOptionsCache();
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("dynamic-include-suffixes", "-a");
+        attributes.put("other", "value");
+
+        List<String> logs = new ArrayList<>();
+        DynamicIncludeOptions options = DynamicIncludeOptions.forDocument(logs::add, new AttributeSnapshot(attributes));
+        // Same options in the next directive (other attributes are ignored):
+        attributes.put("other", "changed");
+        assertThat(DynamicIncludeOptions.forDocument(logs::add, new AttributeSnapshot(attributes))).isSameAs(options);
+
+        // Changed by an attribute entry:
+        attributes.put("idseparator", "-");
+        DynamicIncludeOptions changed = DynamicIncludeOptions.forDocument(logs::add, new AttributeSnapshot(attributes));
+        assertThat(changed).isNotSameAs(options);
+        assertThat(changed.getIdseparator()).isEqualTo("-");
+        attributes.remove("idseparator");
+        assertThat(DynamicIncludeOptions.forDocument(logs::add, new AttributeSnapshot(attributes))).isSameAs(options);
+        assertThat(logs).isEmpty();
+
+        // Invalid values are not cached, the warning is logged for each directive:
+        attributes.put("dynamic-include-mmap-threshold", "xyz");
+        DynamicIncludeOptions.forDocument(logs::add, new AttributeSnapshot(attributes));
+        DynamicIncludeOptions.forDocument(logs::add, new AttributeSnapshot(attributes));
+        assertThat(logs).hasSize(2);
+    }
+}
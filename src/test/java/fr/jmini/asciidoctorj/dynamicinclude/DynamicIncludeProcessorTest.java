@@ -8,6 +8,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -15,11 +16,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
+import fr.jmini.asciidoctorj.dynamicinclude.DynamicIncludeEvent.Phase;
 import fr.jmini.asciidoctorj.dynamicinclude.XrefHolder.XrefHolderType;
 
 class DynamicIncludeProcessorTest {
@@ -249,6 +253,335 @@ class DynamicIncludeProcessorTest {
         assertThat(shiftedLinkFoo).isEqualTo("See xref:#_foo_2[this anchor]");
     }
 
+    @Test
+    void testReplaceXrefLinks() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Function<String, Optional<String>> resolver = (String key) -> Objects.equals("root", key) ? Optional.of("") : Optional.empty();
+        String key1 = "folder/page.adoc";
+        String key2 = "folder/other.adoc";
+        String key3 = "folder/some.adoc";
+        Path file1 = dir.resolve(key1);
+        Path file2 = dir.resolve(key2);
+        Path file3 = dir.resolve(key3);
+        Files.createDirectories(dir.resolve("folder"));
+        Files.write(file1, "!! dummy content !!".getBytes(StandardCharsets.UTF_8));
+        Files.write(file2, "!! dummy content !!".getBytes(StandardCharsets.UTF_8));
+        Files.write(file3, "!! dummy content !!".getBytes(StandardCharsets.UTF_8));
+
+        TitleHolder title1 = new TitleHolder(TitleType.PRESENT, 2, "Page 1", "_page_1", 91, 95);
+        FileHolder holder1 = new FileHolder(file1, key1, "page", null, "!! dummy content !!", title1, 1, Collections.emptyMap(), Collections.emptyMap());
+        TitleHolder title2 = new TitleHolder(TitleType.PRESENT, 2, "Other Page", "_other_page", 101, 105);
+        Map<String, String> titleAnchorMap2 = Collections.singletonMap("Other Page", "_other_page");
+        FileHolder holder2 = new FileHolder(file2, key2, "other", null, "!! dummy content !!", title2, 1, titleAnchorMap2, Collections.emptyMap());
+        TitleHolder title3 = new TitleHolder(TitleType.PRESENT, 2, "Foo", "_foo", 101, 105);
+        Map<String, String> titleAnchorMap3 = Collections.singletonMap("Foo", "_foo");
+        Map<String, String> anchorShift3 = Collections.singletonMap("_foo", "_foo_2");
+        FileHolder holder3 = new FileHolder(file3, key3, "some", null, "!! dummy content !!", title3, 1, titleAnchorMap3, anchorShift3);
+        FileHolderIndex index = FileHolderIndex.of(Arrays.asList(holder1, holder2, holder3));
+
+        String noLink = "Some content without links";
+        assertThat(DynamicIncludeProcessor.replaceXrefLinks(noLink, index, dir, holder1, true, resolver)).isSameAs(noLink);
+
+        String unchangedLink = "Some <<test, internal>> link";
+        assertThat(DynamicIncludeProcessor.replaceXrefLinks(unchangedLink, index, dir, holder1, true, resolver)).isEqualTo(unchangedLink);
+
+        DirectiveStatistics statistics = new DirectiveStatistics();
+        DynamicIncludeProcessor.replaceXrefLinks(unchangedLink, index, dir, holder1, true, resolver, statistics);
+        DynamicIncludeProcessor.replaceXrefLinks("See <<other.adoc#foo, link 1>> and xref:other.adoc#bar[link 2] for more info", index, dir, holder1, true, resolver, statistics);
+        DynamicIncludeEvent event = statistics.toEvent("index.adoc", "dynamic:folder/*.adoc", dir, null, LogfileFormat.TEXT, 0L, 3);
+        assertThat(event.getXrefsFound()).isEqualTo(3);
+        assertThat(event.getXrefsRewritten()).isEqualTo(2);
+
+        // Both links are replaced when a link is nested in the text of the other one:
+        assertThat(DynamicIncludeProcessor.replaceXrefLinks("<<a.adoc#x, see xref:b.adoc#y[y]>>", index, dir, holder1, false, resolver)).isEqualTo("<<folder/a.adoc#x, see xref:folder/b.adoc#y[y]>>");
+        assertThat(DynamicIncludeProcessor.replaceXrefLinks("<<other.adoc#x, see xref:some.adoc#Foo[y]>>", index, dir, holder1, false, resolver)).isEqualTo("<<#x, see xref:#_foo_2[y]>>");
+        assertThat(DynamicIncludeProcessor.replaceXrefLinks("<<a.adoc#x, see xref:b.adoc#y[y]>>", index, dir, holder1, true, resolver)).isEqualTo(" see y");
+
+        List<String> inputs = Arrays.asList(
+                "See <<other.adoc#foo, link 1>> and xref:other.adoc#bar[link 2] for more info",
+                "See xref:other.adoc[link 1] and <<some.adoc#, link 2>> for more info",
+                "xref:{root}folder/some.adoc#_foo[link]<<other.adoc#test>>",
+                "Some <<ext.adoc#test, other>> and xref:ext.adoc#[other] links",
+                "See <<Foo, page title>> and xref:#_foo[this anchor] and <<#_foo, this anchor>>",
+                "Unclosed << and xref:other.adoc#test[other] link",
+                "Some xref: <<other.adoc#test, other>> link",
+                "<<other.adoc#x, see xref:some.adoc#Foo[y]>>",
+                "xref:other.adoc#x[see <<some.adoc#Foo>>] and <<ext.adoc#x, see xref:ext.adoc#y[y]>>");
+        for (String input : inputs) {
+            for (FileHolder current : Arrays.asList(holder1, holder3)) {
+                String twoPasses = DynamicIncludeProcessor.replaceXrefDoubleAngledBracketLinks(input, index, dir, current, true, resolver);
+                twoPasses = DynamicIncludeProcessor.replaceXrefInlineLinks(twoPasses, index, dir, current, true, resolver);
+                assertThat(DynamicIncludeProcessor.replaceXrefLinks(input, index, dir, current, true, resolver)).isEqualTo(twoPasses);
+
+                // Appended after a prefix, with a part of the content skipped:
+                StringBuilder sb = new StringBuilder("prefix|");
+                DynamicIncludeProcessor.appendXrefLinks(sb, "skipped <<other.adoc#foo>>|" + input, 27, index, dir, current, true, resolver, null, null, null);
+                assertThat(sb.toString()).isEqualTo("prefix|" + twoPasses);
+            }
+        }
+    }
+
+    @Test
+    void testAppendXrefLinksUnresolvedWarnings() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Function<String, Optional<String>> resolver = (String key) -> Optional.empty();
+        Files.createDirectories(dir.resolve("folder"));
+        Files.write(dir.resolve("folder/existing.adoc"), "= Existing\n".getBytes(StandardCharsets.UTF_8));
+        String content = "= Page 1\r\n\nSee <<other.adoc#foo, link 1>>\nand xref:existing.adoc#bar[link 2],\n\nxref:missing.adoc[link 3] or <<#_page_1>>\n";
+
+        Path file1 = dir.resolve("folder/page1.adoc");
+        Files.write(file1, content.getBytes(StandardCharsets.UTF_8));
+        ParsedFileHolder parsedFile = DynamicIncludeProcessor.parseFile(file1, "_", "_");
+        FileHolder holder1 = DynamicIncludeProcessor.createFileHolder(dir, parsedFile.withoutContent(), "_", "_", 1, new AnchorRegistry());
+        TitleHolder title2 = new TitleHolder(TitleType.PRESENT, 1, "Other", "_other", 0, 7);
+        FileHolder holder2 = new FileHolder(dir.resolve("folder/other.adoc"), "folder/other.adoc", "other", null, null, title2, 1, Collections.emptyMap(), Collections.emptyMap());
+        FileHolderIndex index = FileHolderIndex.of(Arrays.asList(holder1, holder2));
+
+        List<String> logs = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        DynamicIncludeProcessor.appendXrefLinks(sb, content, 0, index, dir, holder1, false, resolver, logs::add, parsedFile.getLineIndex(), null);
+        assertThat(sb.toString()).contains("<<#foo, link 1>>");
+        assertThat(logs).containsExactly("unresolved xref to 'missing.adoc' at folder/page1.adoc:6");
+
+        // Without line index, the line starts are computed from the content:
+        logs.clear();
+        DynamicIncludeProcessor.appendXrefLinks(new StringBuilder(), content, 0, index, dir, holder1, false, resolver, logs::add, null, null);
+        assertThat(logs).containsExactly("unresolved xref to 'missing.adoc' at folder/page1.adoc:6");
+
+        assertThat(parsedFile.getLineIndex()
+                .getLineCount()).isEqualTo(7);
+        assertThat(parsedFile.getLineNumber(content.indexOf("xref:existing.adoc"))).isEqualTo(4);
+        ParsedFileHolder metadata = parsedFile.withoutContent();
+        assertThat(metadata.getLineIndex()).isNull();
+        assertThat(metadata.getContentLength()).isEqualTo(content.length());
+        // A content of the same length is not read with the line starts of the previous content:
+        String modified = "a\nb\nc\n" + content.substring(6);
+        ParsedFileHolder loaded = new ParsedFileHolder(file1, modified, metadata.getFirstTitle(), metadata.getTitleAnchorMap(), metadata.getAnchors(), null);
+        assertThat(loaded.getLineNumber(modified.indexOf("xref:existing.adoc"))).isEqualTo(7);
+    }
+
+    @Test
+    void testLoadListeners() throws Exception {
+        DynamicIncludeListener listener = e -> {
+        };
+        assertThat(DynamicIncludeProcessor.loadListeners(Collections.emptyMap())).isEmpty();
+        assertThat(DynamicIncludeProcessor.loadListeners(Collections.singletonMap(DynamicIncludeProcessor.LISTENERS_CONFIG_KEY, listener))).containsExactly(listener);
+
+        List<DynamicIncludeListener> listeners = DynamicIncludeProcessor.loadListeners(Collections.singletonMap(DynamicIncludeProcessor.LISTENERS_CONFIG_KEY, Arrays.asList(listener, LogfileStatisticsListener.class.getName())));
+        assertThat(listeners).hasSize(2);
+        assertThat(listeners.get(0)).isSameAs(listener);
+        assertThat(listeners.get(1)).isInstanceOf(LogfileStatisticsListener.class);
+
+        assertThatThrownBy(() -> DynamicIncludeProcessor.loadListeners(Collections.singletonMap(DynamicIncludeProcessor.LISTENERS_CONFIG_KEY, "not.existing.Listener")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testFindParsedFileCacheSize() throws Exception {
+        String previous = System.getProperty(DynamicIncludeProcessor.PARSED_FILE_CACHE_SIZE_PROPERTY);
+        try {
+            System.clearProperty(DynamicIncludeProcessor.PARSED_FILE_CACHE_SIZE_PROPERTY);
+            assertThat(DynamicIncludeProcessor.findParsedFileCacheSize(Collections.emptyMap())).isNull();
+            assertThat(DynamicIncludeProcessor.findParsedFileCacheSize(Collections.singletonMap(DynamicIncludeProcessor.PARSED_FILE_CACHE_SIZE_CONFIG_KEY, 8))).isEqualTo("8");
+
+            System.setProperty(DynamicIncludeProcessor.PARSED_FILE_CACHE_SIZE_PROPERTY, "16");
+            assertThat(DynamicIncludeProcessor.findParsedFileCacheSize(Collections.emptyMap())).isEqualTo("16");
+            assertThat(DynamicIncludeProcessor.findParsedFileCacheSize(Collections.singletonMap(DynamicIncludeProcessor.PARSED_FILE_CACHE_SIZE_CONFIG_KEY, "0"))).isEqualTo("0");
+        } finally {
+            if (previous != null) {
+                System.setProperty(DynamicIncludeProcessor.PARSED_FILE_CACHE_SIZE_PROPERTY, previous);
+            } else {
+                System.clearProperty(DynamicIncludeProcessor.PARSED_FILE_CACHE_SIZE_PROPERTY);
+            }
+        }
+    }
+
+    @Test
+    void testLogfileStatisticsListener() throws Exception {
+        Path dir = Files.createTempDirectory("test");
+        Path logfile = dir.resolve("log/index-log.txt");
+
+        DirectiveStatistics statistics = new DirectiveStatistics();
+        statistics.addPhaseNanos(Phase.FIND_FILES, 1_500_000L);
+        statistics.addPhaseNanos(Phase.PUSH_INCLUDES, 250_000L);
+        statistics.fileRead(100L);
+        statistics.fileRead(23L);
+        statistics.xrefFound(true);
+        statistics.xrefFound(false);
+        DynamicIncludeEvent event = statistics.toEvent("index.adoc", "dynamic:pages/*.adoc", dir, logfile.toString(), LogfileFormat.TEXT, 2_000_000L, 3);
+
+        new LogfileStatisticsListener().directiveProcessed(event);
+        LogfileWriter.flushAll();
+        String content = new String(Files.readAllBytes(logfile), StandardCharsets.UTF_8);
+        assertThat(content).isEqualTo(
+                "# Statistics: 3 files (2 read, 123 bytes), 2 xrefs (1 rewritten), total: 2.000 ms, find-files: 1.500 ms, sort-files: 0.000 ms, read-files: 0.000 ms, parse-files: 0.000 ms, create-file-holders: 0.000 ms, replace-xrefs: 0.000 ms, push-includes: 0.250 ms\n\n");
+
+        DynamicIncludeEvent withoutLogfile = statistics.toEvent("index.adoc", "dynamic:pages/*.adoc", dir, null, LogfileFormat.TEXT, 2_000_000L, 3);
+        new LogfileStatisticsListener().directiveProcessed(withoutLogfile);
+        LogfileWriter.flushAll();
+        assertThat(new String(Files.readAllBytes(logfile), StandardCharsets.UTF_8)).isEqualTo(content);
+
+        DynamicIncludeEvent jsonEvent = statistics.toEvent("index.adoc", "dynamic:pages/*.adoc", dir, logfile.toString(), LogfileFormat.JSON_LINES, 2_000_000L, 3);
+        assertThat(LogfileStatisticsListener.toJson(jsonEvent)).isEqualTo(
+                "{\"type\":\"statistics\",\"file\":\"index.adoc\",\"target\":\"dynamic:pages/*.adoc\",\"fileCount\":3,\"readFileCount\":2,\"bytesRead\":123,\"xrefsFound\":2,\"xrefsRewritten\":1,\"totalNanos\":2000000,"
+                        + "\"phaseNanos\":{\"find-files\":1500000,\"sort-files\":0,\"read-files\":0,\"parse-files\":0,\"create-file-holders\":0,\"replace-xrefs\":0,\"push-includes\":250000}}\n");
+    }
+
+    @Test
+    void testCreateLogfileRecord() throws Exception {
+        Path dir = Paths.get("/tmp/dir");
+        FileHolder holder1 = new FileHolder(dir.resolve("pages/index.adoc"), "pages/index.adoc", "index", null, "", null, 1, Collections.emptyMap(), Collections.emptyMap());
+        FileHolder holder2 = new FileHolder(dir.resolve("pages/page \"1\".adoc"), "pages/page \"1\".adoc", "page \"1\"", null, "", null, -1, Collections.emptyMap(), Collections.emptyMap());
+        List<FileHolder> list = Arrays.asList(holder1, holder2);
+
+        assertThat(DynamicIncludeProcessor.createLogfileRecord(LogfileFormat.TEXT, "index.adoc", "dynamic:pages/*.adoc", 2, list)).isEqualTo("# File: index.adoc\n" +
+                "# Target: dynamic:pages/*.adoc\n" +
+                "# level-offset-shifting: 2\n" +
+                "pages/index.adoc (leveloffset: +1)\n" +
+                "pages/page \"1\".adoc (leveloffset: -1)\n\n");
+        assertThat(DynamicIncludeProcessor.createLogfileRecord(LogfileFormat.JSON_LINES, "index.adoc", "dynamic:pages/*.adoc", 2, list))
+                .isEqualTo("{\"type\":\"directive\",\"file\":\"index.adoc\",\"target\":\"dynamic:pages/*.adoc\",\"levelOffsetShifting\":2,\"pages\":[{\"key\":\"pages/index.adoc\",\"levelOffset\":1},{\"key\":\"pages/page \\\"1\\\".adoc\",\"levelOffset\":-1}]}\n");
+    }
+
+    @Test
+    void testConvertMmapThreshold() throws Exception {
+        List<String> logs = new ArrayList<>();
+        assertThat(DynamicIncludeProcessor.convertMmapThreshold(logs::add, null)).isEqualTo(ContentReader.DEFAULT_MMAP_THRESHOLD);
+        assertThat(DynamicIncludeProcessor.convertMmapThreshold(logs::add, "0")).isEqualTo(0L);
+        assertThat(DynamicIncludeProcessor.convertMmapThreshold(logs::add, "100")).isEqualTo(100L * 1024 * 1024);
+        assertThat(logs).isEmpty();
+
+        assertThat(DynamicIncludeProcessor.convertMmapThreshold(logs::add, "10MB")).isEqualTo(ContentReader.DEFAULT_MMAP_THRESHOLD);
+        assertThat(logs).containsExactly("mmap-threshold value '10MB' is not a valid number, using 16 as fallback");
+
+        // Too large for a long, before and after the conversion to bytes:
+        logs.clear();
+        assertThat(DynamicIncludeProcessor.convertMmapThreshold(logs::add, "99999999999999999999")).isEqualTo(ContentReader.DEFAULT_MMAP_THRESHOLD);
+        assertThat(DynamicIncludeProcessor.convertMmapThreshold(logs::add, "9999999999999")).isEqualTo(ContentReader.DEFAULT_MMAP_THRESHOLD);
+        assertThat(logs).hasSize(2);
+    }
+
+    @Test
+    void testConvertParsedFileCacheSize() throws Exception {
+        List<String> logs = new ArrayList<>();
+        assertThat(DynamicIncludeProcessor.convertParsedFileCacheSize(logs::add, "0")).isEqualTo(0L);
+        assertThat(DynamicIncludeProcessor.convertParsedFileCacheSize(logs::add, "+8")).isEqualTo(8L * 1024 * 1024);
+        assertThat(logs).isEmpty();
+
+        assertThat(DynamicIncludeProcessor.convertParsedFileCacheSize(logs::add, "-1")).isEqualTo(ParsedFileCache.DEFAULT_MAX_WEIGHT);
+        assertThat(DynamicIncludeProcessor.convertParsedFileCacheSize(logs::add, "99999999999999999999")).isEqualTo(ParsedFileCache.DEFAULT_MAX_WEIGHT);
+        assertThat(DynamicIncludeProcessor.convertParsedFileCacheSize(logs::add, "9999999999999")).isEqualTo(ParsedFileCache.DEFAULT_MAX_WEIGHT);
+        assertThat(logs).containsExactly("parsed-file-cache-size value '-1' is not a valid number, using 64 as fallback",
+                "parsed-file-cache-size value '99999999999999999999' is not a valid number, using 64 as fallback",
+                "parsed-file-cache-size value '9999999999999' is not a valid number, using 64 as fallback");
+    }
+
+    @Test
+    void testConvertLogfileFormat() throws Exception {
+        List<String> logs = new ArrayList<>();
+        assertThat(DynamicIncludeProcessor.convertLogfileFormat(logs::add, null)).isEqualTo(LogfileFormat.TEXT);
+        assertThat(DynamicIncludeProcessor.convertLogfileFormat(logs::add, "text")).isEqualTo(LogfileFormat.TEXT);
+        assertThat(DynamicIncludeProcessor.convertLogfileFormat(logs::add, "json-lines")).isEqualTo(LogfileFormat.JSON_LINES);
+        assertThat(DynamicIncludeProcessor.convertLogfileFormat(logs::add, "jsonl")).isEqualTo(LogfileFormat.JSON_LINES);
+        assertThat(logs).isEmpty();
+
+        assertThat(DynamicIncludeProcessor.convertLogfileFormat(logs::add, "xml")).isEqualTo(LogfileFormat.TEXT);
+        assertThat(logs).containsExactly("logfile-format value 'xml' is not supported (expected 'text' or 'json-lines'), using 'text' as fallback");
+    }
+
+    @Test
+    void testFlightRecorderEventsFallback() throws Exception {
+        FlightRecorderEvents events = FlightRecorderEvents.load("not.existing.Events");
+        assertThat(events).isSameAs(FlightRecorderEvents.NONE);
+        assertThat(events.beginDirective()).isNull();
+        events.commitDirective(null, "*.adoc", Paths.get("/tmp/dir"), 0, 0L);
+
+        assertThat(FlightRecorderEvents.load(String.class.getName())).isSameAs(FlightRecorderEvents.NONE);
+    }
+
+    @Test
+    void testFileHolderIndex() throws Exception {
+        Path dir = Paths.get("/tmp/dir");
+        FileHolder holder1 = createFileHolder(dir, "folder/page.adoc");
+        FileHolder holder2 = createFileHolder(dir, "folder/other.adoc");
+        FileHolderIndex index = FileHolderIndex.of(Arrays.asList(holder1, holder2));
+
+        assertThat(index.isEmpty()).isFalse();
+        assertThat(index.find(dir.resolve("folder/page.adoc"))).isEqualTo(Optional.of(holder1));
+        assertThat(index.find(dir.resolve("folder/sub/../other.adoc"))).isEqualTo(Optional.of(holder2));
+        assertThat(index.find(dir.resolve("folder/missing.adoc"))).isNotPresent();
+        assertThat(FileHolderIndex.of(Collections.emptyList())
+                .isEmpty()).isTrue();
+    }
+
+    @Test
+    void testFileHolderIndexExists() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        FileHolder holder1 = createFileHolder(dir, "folder/page.adoc");
+        FileHolderIndex index = FileHolderIndex.of(Collections.singletonList(holder1));
+
+        // Included file, not checked on the file system:
+        assertThat(index.exists(dir.resolve("folder/page.adoc"))).isTrue();
+        // Checked on the file system, the 'sub' folder does not exist:
+        assertThat(index.exists(dir.resolve("folder/sub/../page.adoc"))).isFalse();
+
+        Path external = dir.resolve("external.adoc");
+        assertThat(index.exists(external)).isFalse();
+        Files.write(external, "= External\n".getBytes(StandardCharsets.UTF_8));
+        // Negative result cached for the directive:
+        assertThat(index.exists(external)).isFalse();
+        assertThat(FileHolderIndex.of(Collections.singletonList(holder1))
+                .exists(external)).isTrue();
+
+        Path other = dir.resolve("other.adoc");
+        Files.write(other, "= Other\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(index.exists(other)).isTrue();
+        Files.delete(other);
+        // Positive result cached for the directive:
+        assertThat(index.exists(other)).isTrue();
+    }
+
+    @Test
+    void testFileHolderIndexExistsParallel() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Function<String, Optional<String>> resolver = (String key) -> Optional.empty();
+        Files.write(dir.resolve("external.adoc"), "= External\n".getBytes(StandardCharsets.UTF_8));
+        List<FileHolder> list = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            list.add(createFileHolder(dir, "page" + i + ".adoc"));
+        }
+        AtomicInteger checks = new AtomicInteger();
+        FileHolderIndex index = FileHolderIndex.of(list, (Path p) -> {
+            checks.incrementAndGet();
+            try {
+                // Slow file system, so that the pages ask for the file at the same time:
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                        .interrupt();
+            }
+            return Files.exists(p);
+        });
+
+        // Same as the content pass in parallel mode, the links of each page are rewritten on a thread of the common pool:
+        List<String> logs = Collections.synchronizedList(new ArrayList<>());
+        List<String> results = list.parallelStream()
+                .map(holder -> {
+                    String content = "See <<external.adoc#foo, link 1>> and xref:external.adoc[link 2] in " + holder.getKey() + "\n";
+                    StringBuilder sb = new StringBuilder();
+                    DynamicIncludeProcessor.appendXrefLinks(sb, content, 0, index, dir, holder, false, resolver, logs::add, null, null);
+                    return sb.toString();
+                })
+                .collect(Collectors.toList());
+
+        assertThat(results).hasSize(16);
+        for (String result : results) {
+            assertThat(result).startsWith("See <<external.adoc#foo, link 1>> and xref:external.adoc[link 2] in ");
+        }
+        assertThat(logs).isEmpty();
+        assertThat(checks.get()).isEqualTo(1);
+    }
+
     @Test
     void testFindNextXrefDoubleAngledBracket() throws Exception {
         Optional<XrefHolder> emptyList = DynamicIncludeProcessor.findNextXrefDoubleAngledBracket("Some content", 0);
@@ -530,6 +863,92 @@ class DynamicIncludeProcessorTest {
                 .containsEntry("_my_title_2", "_my_title_3");
     }
 
+    @Test
+    void testCreateFileHolderWithoutContent() throws Exception {
+        Path dir = Paths.get("src/test/resources")
+                .toAbsolutePath();
+        Path path = dir.resolve("example9/pages/pageA.adoc");
+
+        ParsedFileHolder parsedFile = DynamicIncludeProcessor.parseFile(path, "_", "_");
+        ParsedFileHolder metadata = parsedFile.withoutContent();
+        assertThat(metadata.getContent()).isNull();
+        assertThat(metadata.getPath()).isEqualTo(parsedFile.getPath());
+        assertThat(metadata.getAnchors()).isEqualTo(parsedFile.getAnchors());
+
+        FileHolder expected = DynamicIncludeProcessor.createFileHolder(dir, parsedFile, "_", "_", 1, new AnchorRegistry());
+        FileHolder holder = DynamicIncludeProcessor.createFileHolder(dir, metadata, "_", "_", 1, new AnchorRegistry());
+        assertThat(holder.getContent()).isNull();
+        assertThat(holder.getKey()).isEqualTo(expected.getKey());
+        assertThat(holder.getFirstTitle()
+                .getTitleEnd()).isEqualTo(expected.getFirstTitle()
+                        .getTitleEnd());
+        assertThat(holder.getTitleAnchorMap()).isEqualTo(expected.getTitleAnchorMap());
+        assertThat(holder.getAnchorShift()).isEqualTo(expected.getAnchorShift());
+    }
+
+    @Test
+    void testLoadContent() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Path page = dir.resolve("page.adoc");
+        Files.write(page, "= Page\n\nSome text\n".getBytes(StandardCharsets.UTF_8));
+        ParsedFileHolder metadata = DynamicIncludeProcessor.parseFile(page, "_", "_")
+                .withoutContent();
+
+        List<String> logs = new ArrayList<>();
+        DirectiveStatistics statistics = new DirectiveStatistics();
+        ParsedFileHolder source = DynamicIncludeProcessor.loadContent(logs::add, metadata, "_", "_", ContentReader.DEFAULT_MMAP_THRESHOLD, statistics);
+        assertThat(source.getContent()).isEqualTo("= Page\n\nSome text\n");
+        assertThat(source.getFirstTitle()).isSameAs(metadata.getFirstTitle());
+        // Only read, not counted a second time:
+        assertThat(statistics.getBytesRead()).isEqualTo(0L);
+        assertThat(logs).isEmpty();
+
+        // Modified between the two passes:
+        Files.write(page, "// comment\n= Page\n\nSome text\n".getBytes(StandardCharsets.UTF_8));
+        ParsedFileHolder modified = DynamicIncludeProcessor.loadContent(logs::add, metadata, "_", "_", ContentReader.DEFAULT_MMAP_THRESHOLD, statistics);
+        assertThat(modified.getContent()).startsWith("// comment");
+        assertThat(modified.getFirstTitle()
+                .getTitleStart()).isEqualTo(11);
+        assertThat(logs).containsExactly("file '" + page + "' was modified while the include directive was processed, the titles of its new content are used but the links to its anchors might be wrong");
+
+        // Modified between the two passes, without changing the length of the content:
+        Files.write(page, "= Gage\n\nSome text\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(page, FileTime.fromMillis(metadata.getLastModifiedTime() + 2000L));
+        List<String> sameLengthLogs = new ArrayList<>();
+        ParsedFileHolder sameLength = DynamicIncludeProcessor.loadContent(sameLengthLogs::add, metadata, "_", "_", ContentReader.DEFAULT_MMAP_THRESHOLD, statistics);
+        assertThat(sameLength.getContent()).isEqualTo("= Gage\n\nSome text\n");
+        assertThat(sameLength.getFirstTitle()
+                .getTitle()).isEqualTo("Gage");
+        assertThat(sameLengthLogs).containsExactly("file '" + page + "' was modified while the include directive was processed, the titles of its new content are used but the links to its anchors might be wrong");
+    }
+
+    @Test
+    void testLoadContentFromMetadataIndex() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Path page = dir.resolve("page.adoc");
+        Files.write(page, "= Page\n\nSome text\n".getBytes(StandardCharsets.UTF_8));
+        Path indexFile = dir.resolve("metadata.idx");
+        MetadataIndex index = MetadataIndex.load(indexFile);
+        index.parseFile(page, "_", "_");
+        index.save();
+
+        // Next build, the metadata pass does not read the file:
+        DirectiveStatistics statistics = new DirectiveStatistics();
+        ParsedFileHolder metadata = MetadataIndex.load(indexFile)
+                .parseFile(page, "_", "_", ContentReader.DEFAULT_MMAP_THRESHOLD, statistics)
+                .withoutContent();
+        assertThat(metadata.isContentRead()).isFalse();
+        assertThat(statistics.getBytesRead()).isEqualTo(0L);
+
+        // The file is counted as read by the content pass:
+        List<String> logs = new ArrayList<>();
+        ParsedFileHolder source = DynamicIncludeProcessor.loadContent(logs::add, metadata, "_", "_", ContentReader.DEFAULT_MMAP_THRESHOLD, statistics);
+        assertThat(source.getContent()).isEqualTo("= Page\n\nSome text\n");
+        assertThat(source.getFirstTitle()).isSameAs(metadata.getFirstTitle());
+        assertThat(statistics.getBytesRead()).isEqualTo(18L);
+        assertThat(logs).isEmpty();
+    }
+
     @Test
     void testComputeTitleId() throws Exception {
         assertThat(DynamicIncludeProcessor.computeTitleId("My Title", "", "-", Collections.emptyList())).isEqualTo("my-title");
@@ -546,6 +965,30 @@ class DynamicIncludeProcessorTest {
         assertThat(DynamicIncludeProcessor.computeTitleId("My Title [[foo]]", "_", "-", Collections.emptyList())).isEqualTo("foo");
     }
 
+    @Test
+    void testComputeTitleIdWithAnchorRegistry() throws Exception {
+        AnchorRegistry registry = new AnchorRegistry();
+        for (int i = 1; i <= 1500; i++) {
+            String anchor = DynamicIncludeProcessor.computeTitleId("Overview", "_", "_", registry);
+            if (i == 1) {
+                assertThat(anchor).isEqualTo("_overview");
+            } else {
+                assertThat(anchor).isEqualTo("_overview_" + i);
+            }
+            assertThat(registry.add(anchor)).isTrue();
+        }
+
+        // A candidate that is not registered is proposed again:
+        assertThat(registry.nextFreeAnchor("_overview", "_")).isEqualTo("_overview_1501");
+        assertThat(registry.nextFreeAnchor("_overview", "_")).isEqualTo("_overview_1501");
+
+        // Anchors registered directly are skipped:
+        registry.add("_overview_1501");
+        registry.add("_overview_1502");
+        assertThat(registry.nextFreeAnchor("_overview", "_")).isEqualTo("_overview_1503");
+        assertThat(registry.nextFreeAnchor("_overview", "-")).isEqualTo("_overview-2");
+    }
+
     @Test
     void testStripAnchorSuffix() throws Exception {
         assertThat(DynamicIncludeProcessor.stripAnchorSuffix("test-id", "-")).isEqualTo("test-id");
@@ -563,6 +1006,12 @@ class DynamicIncludeProcessorTest {
     void testCountLines() throws Exception {
         assertThat(DynamicIncludeProcessor.countLines("one\ntwo")).isEqualTo(2);
         assertThat(DynamicIncludeProcessor.countLines("one")).isEqualTo(1);
+        assertThat(DynamicIncludeProcessor.countLines("one\r\ntwo\rthree\n\nfour")).isEqualTo(5);
+
+        assertThat(DynamicIncludeProcessor.countLines("one\ntwo\nthree", 0)).isEqualTo(1);
+        assertThat(DynamicIncludeProcessor.countLines("one\ntwo\nthree", 4)).isEqualTo(2);
+        assertThat(DynamicIncludeProcessor.countLines("one\r\ntwo", 4)).isEqualTo(2);
+        assertThat(DynamicIncludeProcessor.countLines("one\r\ntwo", 5)).isEqualTo(2);
     }
 
     @Test
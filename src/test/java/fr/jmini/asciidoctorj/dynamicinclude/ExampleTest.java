@@ -35,6 +35,28 @@ class ExampleTest {
         assertThat(content).isEqualTo(expectedLogContent);
     }
 
+    @Test
+    void testExample1IndexLoadOnly() throws Exception {
+        Path logfile = Files.createTempFile("test", "log")
+                .toAbsolutePath();
+        Path exampleFolder = Paths.get("src/test/resources/example1")
+                .toAbsolutePath();
+        String content = new String(Files.readAllBytes(exampleFolder.resolve("index.adoc")), StandardCharsets.UTF_8);
+
+        // The document is only loaded (not converted), the log file is written by the directive itself:
+        Asciidoctor asciidoctor = Factory.create();
+        OptionsBuilder optionsBuilder = OptionsBuilder.options()
+                .attributes(AttributesBuilder.attributes()
+                        .attribute("dynamic-include-logfile", logfile.toString()))
+                .baseDir(exampleFolder.toFile())
+                .docType("book")
+                .safe(SafeMode.UNSAFE);
+        asciidoctor.load(content, optionsBuilder.asMap());
+
+        String expectedLogContent = new String(Files.readAllBytes(exampleFolder.resolve("index-log.txt")), StandardCharsets.UTF_8);
+        assertThat(readFile(logfile)).isEqualTo(expectedLogContent);
+    }
+
     @Test
     void testExample1Guide() throws Exception {
         Path logfile = Files.createTempFile("test", "log")
@@ -182,6 +204,18 @@ class ExampleTest {
         assertThat(logs).isEmpty();
     }
 
+    @Test
+    void testExample5Parallel() throws Exception {
+        List<LogRecord> logs = runTest("example5", "index", null, false, true);
+        assertThat(logs).hasSize(1);
+    }
+
+    @Test
+    void testExample9Parallel() throws Exception {
+        List<LogRecord> logs = runTest("example9", "index", null, false, true);
+        assertThat(logs).isEmpty();
+    }
+
     private List<LogRecord> runTest(String folder, String fileName) throws IOException, URISyntaxException {
         return runTest(folder, fileName, null, false);
     }
@@ -191,6 +225,10 @@ class ExampleTest {
     }
 
     private List<LogRecord> runTest(String folder, String fileName, String logfile, boolean asFile) throws IOException, URISyntaxException {
+        return runTest(folder, fileName, logfile, asFile, false);
+    }
+
+    private List<LogRecord> runTest(String folder, String fileName, String logfile, boolean asFile, boolean parallel) throws IOException, URISyntaxException {
         Path exampleFolder = Paths.get("src/test/resources/" + folder)
                 .toAbsolutePath();
         Path contentFile = exampleFolder.resolve(fileName + ".adoc");
@@ -209,6 +247,9 @@ class ExampleTest {
         if (logfile != null) {
             attributesBuilder.attribute("dynamic-include-logfile", logfile);
         }
+        if (parallel) {
+            attributesBuilder.attribute("dynamic-include-parallel", true);
+        }
         attributesBuilder.attribute("local-git-repository-path", Paths.get("")
                 .toAbsolutePath()
                 .toString());
@@ -0,0 +1,47 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class LineIndexTest {
+
+    @Test
+    void testOf() throws Exception {
+        assertThat(LineIndex.of("")
+                .getLineStarts()).isEqualTo(new int[] { 0 });
+        assertThat(LineIndex.of("abc")
+                .getLineStarts()).isEqualTo(new int[] { 0 });
+        assertThat(LineIndex.of("a\nb\r\nc\rd\n")
+                .getLineStarts()).isEqualTo(new int[] { 0, 2, 5, 7, 9 });
+        assertThat(LineIndex.of("\n\r\n\r\r")
+                .getLineStarts()).isEqualTo(new int[] { 0, 1, 3, 4, 5 });
+        assertThat(LineIndex.of("a\u2028b\u0085c")
+                .getLineCount()).isEqualTo(1);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("line ")
+                    .append(i)
+                    .append('\n');
+        }
+        LineIndex lineIndex = LineIndex.of(sb);
+        assertThat(lineIndex.getLineCount()).isEqualTo(201);
+        assertThat(lineIndex.getLength()).isEqualTo(sb.length());
+    }
+
+    @Test
+    void testGetLineNumber() throws Exception {
+        String content = "= Title\r\n\r\nSome text\n\n== Section\rText\n";
+        LineIndex lineIndex = LineIndex.of(content);
+        for (int offset = 0; offset <= content.length(); offset++) {
+            if (offset > 0 && content.charAt(offset - 1) == '\r' && offset < content.length() && content.charAt(offset) == '\n') {
+                // between \r and \n:
+                assertThat(lineIndex.getLineNumber(offset)).isEqualTo(DynamicIncludeProcessor.countLines(content, offset - 1));
+            } else {
+                assertThat(lineIndex.getLineNumber(offset)).isEqualTo(DynamicIncludeProcessor.countLines(content, offset));
+            }
+        }
+        assertThat(lineIndex.getLineNumber(content.indexOf("== Section"))).isEqualTo(5);
+    }
+}
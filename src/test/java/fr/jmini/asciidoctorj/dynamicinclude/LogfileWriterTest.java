@@ -0,0 +1,96 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class LogfileWriterTest {
+
+    @Test
+    void testAppendAndFlush() throws Exception {
+        Path dir = Files.createTempDirectory("test");
+        Path logfile = dir.resolve("sub/log.txt");
+
+        LogfileWriter writer = LogfileWriter.forFile(logfile);
+        assertThat(LogfileWriter.forFile(dir.resolve("sub/../sub/log.txt"))).isSameAs(writer);
+
+        writer.append("first\n");
+        writer.append("second\n");
+        assertThat(Files.exists(logfile)).isFalse();
+
+        writer.flush();
+        assertThat(read(logfile)).isEqualTo("first\nsecond\n");
+
+        writer.append("third\n");
+        LogfileWriter.flushAll();
+        assertThat(read(logfile)).isEqualTo("first\nsecond\nthird\n");
+
+        // Nothing pending:
+        writer.flush();
+        assertThat(read(logfile)).isEqualTo("first\nsecond\nthird\n");
+    }
+
+    @Test
+    void testFlushThreshold() throws Exception {
+        Path logfile = Files.createTempDirectory("test")
+                .resolve("log.txt");
+        LogfileWriter writer = LogfileWriter.forFile(logfile);
+
+        char[] chars = new char[LogfileWriter.FLUSH_THRESHOLD - 1];
+        Arrays.fill(chars, 'a');
+        writer.append(new String(chars));
+        assertThat(Files.exists(logfile)).isFalse();
+
+        writer.append("\n");
+        assertThat(read(logfile)).hasSize(LogfileWriter.FLUSH_THRESHOLD);
+    }
+
+    @Test
+    void testConcurrentAppends() throws Exception {
+        Path logfile = Files.createTempDirectory("test")
+                .resolve("log.txt");
+        LogfileWriter writer = LogfileWriter.forFile(logfile);
+
+        IntStream.range(0, 2000)
+                .parallel()
+                .forEach(i -> writer.append("# record " + i + "\nline 1 of " + i + "\nline 2 of " + i + "\n\n"));
+        writer.flush();
+
+        List<String> lines = Files.readAllLines(logfile, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(2000 * 4);
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i += 4) {
+            String number = lines.get(i)
+                    .substring("# record ".length());
+            assertThat(lines.get(i + 1)).isEqualTo("line 1 of " + number);
+            assertThat(lines.get(i + 2)).isEqualTo("line 2 of " + number);
+            assertThat(lines.get(i + 3)).isEmpty();
+            records.add(number);
+        }
+        assertThat(records).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void testAppendJsonString() throws Exception {
+        assertThat(LogfileWriter.appendJsonString(new StringBuilder(), "pages/page1.adoc")
+                .toString()).isEqualTo("\"pages/page1.adoc\"");
+        assertThat(LogfileWriter.appendJsonString(new StringBuilder(), "a \"b\" c\\d")
+                .toString()).isEqualTo("\"a \\\"b\\\" c\\\\d\"");
+        assertThat(LogfileWriter.appendJsonString(new StringBuilder(), "x\ny\tz\r\u0001")
+                .toString()).isEqualTo("\"x\\ny\\tz\\r\\u0001\"");
+        assertThat(LogfileWriter.appendJsonString(new StringBuilder(), "caf\u00e9")
+                .toString()).isEqualTo("\"caf\u00e9\"");
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,129 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+
+class MetadataIndexTest {
+
+    @Test
+    void testParseFile() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Path page = dir.resolve("page.adoc");
+        Files.write(page, "= Page\n\n== Section\n\n== Section\n".getBytes(StandardCharsets.UTF_8));
+        Path indexFile = dir.resolve("build/metadata.idx");
+
+        MetadataIndex index = MetadataIndex.load(indexFile);
+        ParsedFileHolder parsed = index.parseFile(page, "_", "_");
+        assertParsedFile(parsed, DynamicIncludeProcessor.parseFile(page, "_", "_"));
+        assertThat(index.getParsedCount()).isEqualTo(1);
+        assertThat(index.getReusedCount()).isEqualTo(0);
+        index.save();
+        assertThat(indexFile).exists();
+
+        // Next build, unchanged file (not read):
+        MetadataIndex index2 = MetadataIndex.load(indexFile);
+        assertThat(index2.size()).isEqualTo(1);
+        DirectiveStatistics statistics = new DirectiveStatistics();
+        ParsedFileHolder reused = index2.parseFile(page, "_", "_", ContentReader.DEFAULT_MMAP_THRESHOLD, statistics);
+        assertParsedFile(reused, parsed);
+        assertThat(reused.isContentRead()).isFalse();
+        assertThat(reused.getContent()).isNull();
+        assertThat(statistics.getBytesRead()).isEqualTo(0L);
+        assertThat(index2.getParsedCount()).isEqualTo(0);
+        assertThat(index2.getReusedCount()).isEqualTo(1);
+
+        // Other idseparator:
+        index2.parseFile(page, "_", "-");
+        assertThat(index2.getParsedCount()).isEqualTo(1);
+
+        // Touched file with the same content (read to compute the hash):
+        Files.setLastModifiedTime(page, FileTime.fromMillis(1_000_000L));
+        ParsedFileHolder touched = index2.parseFile(page, "_", "_");
+        assertParsedFile(touched, parsed);
+        assertThat(touched.isContentRead()).isTrue();
+        assertThat(index2.getParsedCount()).isEqualTo(1);
+        assertThat(index2.getReusedCount()).isEqualTo(2);
+
+        // Modified file:
+        Files.write(page, "= Other Page\n".getBytes(StandardCharsets.UTF_8));
+        ParsedFileHolder modified = index2.parseFile(page, "_", "_");
+        assertThat(modified.getFirstTitle()
+                .getTitle()).isEqualTo("Other Page");
+        assertThat(modified.getAnchors()).containsExactly("_other_page");
+        assertThat(index2.getParsedCount()).isEqualTo(2);
+        index2.save();
+
+        MetadataIndex index3 = MetadataIndex.load(indexFile);
+        assertThat(index3.size()).isEqualTo(2);
+        assertParsedFile(index3.parseFile(page, "_", "_"), modified);
+        assertThat(index3.getReusedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testLoadInvalidFile() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Path page = dir.resolve("page.adoc");
+        Files.write(page, "Text without title\n".getBytes(StandardCharsets.UTF_8));
+        Path indexFile = dir.resolve("metadata.idx");
+        Files.write(indexFile, "!! not an index !!".getBytes(StandardCharsets.UTF_8));
+
+        MetadataIndex index = MetadataIndex.load(indexFile);
+        assertThat(index.size()).isEqualTo(0);
+        ParsedFileHolder parsed = index.parseFile(page, "_", "_");
+        assertThat(parsed.getFirstTitle()).isNull();
+        index.save();
+
+        MetadataIndex index2 = MetadataIndex.load(indexFile);
+        assertThat(index2.size()).isEqualTo(1);
+        assertThat(index2.parseFile(page, "_", "_")
+                .getFirstTitle()).isNull();
+        assertThat(index2.getReusedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testParseMappedFile() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Path page = dir.resolve("page.adoc");
+        Files.write(page, "= Page\n\n== Section\n".getBytes(StandardCharsets.UTF_8));
+
+        MetadataIndex index = MetadataIndex.load(dir.resolve("metadata.idx"));
+        ParsedFileHolder parsed = index.parseFile(page, "_", "_", 0, null);
+        assertParsedFile(parsed, DynamicIncludeProcessor.parseFile(page, "_", "_"));
+        assertThat(index.getParsedCount()).isEqualTo(1);
+
+        // Touched file with the same content, the hash of the mapped file matches:
+        Files.setLastModifiedTime(page, FileTime.fromMillis(1_000_000L));
+        assertParsedFile(index.parseFile(page, "_", "_", 0, null), parsed);
+        assertThat(index.getParsedCount()).isEqualTo(1);
+        assertThat(index.getReusedCount()).isEqualTo(1);
+
+        // Same content read without mapping:
+        Files.setLastModifiedTime(page, FileTime.fromMillis(2_000_000L));
+        assertParsedFile(index.parseFile(page, "_", "_"), parsed);
+        assertThat(index.getReusedCount()).isEqualTo(2);
+    }
+
+    private static void assertParsedFile(ParsedFileHolder actual, ParsedFileHolder expected) {
+        assertThat(actual.getPath()).isEqualTo(expected.getPath());
+        if (actual.isContentRead()) {
+            assertThat(actual.getContent()).isEqualTo(expected.getContent());
+        }
+        TitleHolder actualTitle = actual.getFirstTitle();
+        TitleHolder expectedTitle = expected.getFirstTitle();
+        assertThat(actualTitle.getTitleType()).isEqualTo(expectedTitle.getTitleType());
+        assertThat(actualTitle.getTitleLevel()).isEqualTo(expectedTitle.getTitleLevel());
+        assertThat(actualTitle.getTitle()).isEqualTo(expectedTitle.getTitle());
+        assertThat(actualTitle.getTitleId()).isEqualTo(expectedTitle.getTitleId());
+        assertThat(actualTitle.getTitleStart()).isEqualTo(expectedTitle.getTitleStart());
+        assertThat(actualTitle.getTitleEnd()).isEqualTo(expectedTitle.getTitleEnd());
+        assertThat(actual.getTitleAnchorMap()).isEqualTo(expected.getTitleAnchorMap());
+        assertThat(actual.getAnchors()).isEqualTo(expected.getAnchors());
+        assertThat(actual.getContentLength()).isEqualTo(expected.getContentLength());
+    }
+}
@@ -0,0 +1,94 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+
+class ParsedFileCacheTest {
+
+    @Test
+    void testGet() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Path page = dir.resolve("page.adoc");
+        Files.write(page, "= Page\n\n== Section\n".getBytes(StandardCharsets.UTF_8));
+
+        ParsedFileCache cache = new ParsedFileCache(ParsedFileCache.DEFAULT_MAX_WEIGHT);
+        ParsedFileHolder first = cache.get(page, "_", "_", () -> DynamicIncludeProcessor.parseFile(page, "_", "_"));
+        assertThat(first.getAnchors()).containsExactly("_page", "_section");
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(0);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.getWeight()).isEqualTo(ParsedFileCache.weigh(first));
+
+        // Unchanged file:
+        ParsedFileHolder second = cache.get(page, "_", "_", () -> DynamicIncludeProcessor.parseFile(page, "_", "_"));
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+
+        // Other idseparator:
+        ParsedFileHolder other = cache.get(page, "_", "-", () -> DynamicIncludeProcessor.parseFile(page, "_", "-"));
+        assertThat(other.getAnchors()).containsExactly("_page", "_section");
+        assertThat(other).isNotSameAs(first);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+
+        // Same path, relative to another directory:
+        Files.createDirectories(dir.resolve("sub"));
+        Path otherPath = dir.resolve("sub/../page.adoc");
+        ParsedFileHolder relative = cache.get(otherPath, "_", "_", () -> DynamicIncludeProcessor.parseFile(otherPath, "_", "_"));
+        assertThat(relative.getPath()).isEqualTo(otherPath);
+        assertThat(relative.getContent()).isSameAs(first.getContent());
+        assertThat(cache.getHitCount()).isEqualTo(2);
+
+        // Modified file:
+        Files.write(page, "= Page\n\n== Other Section\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(page, FileTime.fromMillis(1_000_000L));
+        ParsedFileHolder modified = cache.get(page, "_", "_", () -> DynamicIncludeProcessor.parseFile(page, "_", "_"));
+        assertThat(modified.getAnchors()).containsExactly("_page", "_other_section");
+        assertThat(cache.getMissCount()).isEqualTo(3);
+
+        cache.clear();
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.getWeight()).isEqualTo(0);
+        assertThat(cache.getMissCount()).isEqualTo(0);
+    }
+
+    @Test
+    void testEviction() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Path page1 = dir.resolve("page1.adoc");
+        Files.write(page1, "= Page 1\n".getBytes(StandardCharsets.UTF_8));
+        Path page2 = dir.resolve("page2.adoc");
+        Files.write(page2, "= Page 2\n".getBytes(StandardCharsets.UTF_8));
+        Path page3 = dir.resolve("page3.adoc");
+        Files.write(page3, "= Page 3\n".getBytes(StandardCharsets.UTF_8));
+
+        long entryWeight = ParsedFileCache.weigh(DynamicIncludeProcessor.parseFile(page1, "_", "_"));
+        ParsedFileCache cache = new ParsedFileCache(2 * entryWeight);
+        cache.get(page1, "_", "_", () -> DynamicIncludeProcessor.parseFile(page1, "_", "_"));
+        cache.get(page2, "_", "_", () -> DynamicIncludeProcessor.parseFile(page2, "_", "_"));
+        // page1 is now the most recently used entry:
+        cache.get(page1, "_", "_", () -> DynamicIncludeProcessor.parseFile(page1, "_", "_"));
+        cache.get(page3, "_", "_", () -> DynamicIncludeProcessor.parseFile(page3, "_", "_"));
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.getWeight()).isEqualTo(2 * entryWeight);
+
+        cache.get(page1, "_", "_", () -> DynamicIncludeProcessor.parseFile(page1, "_", "_"));
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        cache.get(page2, "_", "_", () -> DynamicIncludeProcessor.parseFile(page2, "_", "_"));
+        assertThat(cache.getMissCount()).isEqualTo(4);
+
+        // Reducing the budget evicts entries, entries bigger than the budget are not cached:
+        cache.setMaxWeight(entryWeight - 1);
+        assertThat(cache.size()).isEqualTo(0);
+        cache.get(page1, "_", "_", () -> DynamicIncludeProcessor.parseFile(page1, "_", "_"));
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.getWeight()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,54 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SlugifierTest {
+
+    private static final List<String> PREFIXES = Arrays.asList(null, "", "_", "id-");
+    private static final List<String> SEPARATORS = Arrays.asList(null, "", "_", "-", "--");
+
+    @Test
+    void testSlugify() throws Exception {
+        assertThat(Slugifier.slugify("My Title", "_", "_")).isEqualTo("_my_title");
+        assertThat(Slugifier.slugify("My Title", "", "-")).isEqualTo("my-title");
+        assertThat(Slugifier.slugify("  My   Title  ", "_", "_")).isEqualTo("_my_title");
+        assertThat(Slugifier.slugify("pages/content1.adoc", "_", "_")).isEqualTo("_pagescontent1_adoc");
+        assertThat(Slugifier.slugify("A  B", null, null)).isEqualTo("a  b");
+        assertThat(Slugifier.slugify("\u00DCber \u00C4pfel", "_", "_")).isEqualTo("_ber_pfel");
+        assertThat(Slugifier.slugify("x y", "_", "$0")).isEqualTo("_x y");
+    }
+
+    @Test
+    void testSlugifyMatchesRegexImplementation() throws Exception {
+        List<String> samples = Arrays.asList("", " ", "/", "My Title", "My/Title", "my_title", "Section 1.2", "--Title--", "\tTab\tTitle\n", "a / b", "a/ /b", "\u00DCberblick", "\u00C7a marche", "emoji \uD83D\uDE00 title",
+                "emoji\uD83D\uDE00\uD83D\uDE00title", "split \uD83D/\uDE00 pair", "lone \uD83D surrogate", "lone \uDE00 surrogate", "UPPER CASE", "digits 123 456", "under_score__title");
+        for (String sample : samples) {
+            assertSameResult(sample);
+        }
+
+        String alphabet = "aZ09_ /-.\t\n\u00E9\u00C9\u00DF\u0130\u0131\uD83D\uDE00#[]";
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            int length = random.nextInt(20);
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertSameResult(sb.toString());
+        }
+    }
+
+    private static void assertSameResult(String text) {
+        for (String idprefix : PREFIXES) {
+            for (String idseparator : SEPARATORS) {
+                assertThat(Slugifier.slugify(text, idprefix, idseparator)).isEqualTo(Slugifier.slugifyWithRegex(text, idprefix, idseparator));
+            }
+        }
+    }
+}
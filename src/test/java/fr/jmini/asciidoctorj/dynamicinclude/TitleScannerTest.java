@@ -0,0 +1,146 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class TitleScannerTest {
+
+    private static final Pattern TITLE_REGEX = Pattern.compile("^(\\/?\\/? *)(={1,5})(.+)", Pattern.MULTILINE);
+
+    @Test
+    void testFind() throws Exception {
+        TitleScanner scanner = new TitleScanner("= Title\n\ntext\n\n== Section 1\n\n// === Commented\n\n======= Deep\n==\n");
+        assertThat(scanner.find()).isTrue();
+        assertTitle(scanner, TitleType.PRESENT, 1, "Title", 0, 7);
+        assertThat(scanner.find()).isTrue();
+        assertTitle(scanner, TitleType.PRESENT, 2, "Section 1", 15, 27);
+        assertThat(scanner.find()).isTrue();
+        assertTitle(scanner, TitleType.COMMENTED, 3, "Commented", 29, 45);
+        assertThat(scanner.find()).isTrue();
+        assertTitle(scanner, TitleType.PRESENT, 5, "== Deep", 47, 59);
+        assertThat(scanner.find()).isTrue();
+        assertTitle(scanner, TitleType.PRESENT, 1, "=", 60, 62);
+        assertThat(scanner.find()).isFalse();
+    }
+
+    @Test
+    void testFindLineTerminators() throws Exception {
+        TitleScanner scanner = new TitleScanner("= A\r\n== B\r=== C");
+        assertThat(scanner.find()).isTrue();
+        assertTitle(scanner, TitleType.PRESENT, 1, "A", 0, 3);
+        assertThat(scanner.find()).isTrue();
+        assertTitle(scanner, TitleType.PRESENT, 2, "B", 5, 9);
+        assertThat(scanner.find()).isTrue();
+        assertTitle(scanner, TitleType.PRESENT, 3, "C", 10, 15);
+        assertThat(scanner.find()).isFalse();
+        assertThat(scanner.getLineIndex()
+                .getLineStarts()).isEqualTo(new int[] { 0, 5, 10 });
+    }
+
+    @Test
+    void testGetLineIndex() throws Exception {
+        String content = "= A\r\n\n----\n== Not a title\r----\r\nText\u2028text\n\n== B\n";
+        TitleScanner scanner = new TitleScanner(content);
+        while (scanner.find()) {
+            // scan the whole content
+        }
+        LineIndex lineIndex = scanner.getLineIndex();
+        assertThat(lineIndex.getLineStarts()).isEqualTo(LineIndex.of(content)
+                .getLineStarts());
+        assertThat(lineIndex.getLength()).isEqualTo(content.length());
+    }
+
+    @Test
+    void testFindSkipsDelimitedBlocks() throws Exception {
+        String content = "= Title\n" +
+                "----\n" +
+                "= In listing\n" +
+                "----\n" +
+                "....\n" +
+                "== In literal\n" +
+                "....\n" +
+                "++++\n" +
+                "== In passthrough\n" +
+                "++++\n" +
+                "////\n" +
+                "== In comment\n" +
+                "////\n" +
+                "------\n" +
+                "----\n" +
+                "== Still in listing\n" +
+                "------  \n" +
+                "== After\n";
+        assertThat(findTitles(content)).containsExactly("Title", "After");
+    }
+
+    @Test
+    void testFindUnterminatedBlock() throws Exception {
+        assertThat(findTitles("= Title\n----\n== Section\n")).containsExactly("Title");
+    }
+
+    @Test
+    void testFindMatchesRegexImplementation() throws Exception {
+        String[] fragments = { "=", "==", "=====", "======", "/", "//", " ", "Title", "a=b", "\n", "\r\n", "\r", "\t" };
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(15);
+            for (int j = 0; j < length; j++) {
+                sb.append(fragments[random.nextInt(fragments.length)]);
+            }
+            String content = sb.toString();
+            if (content.contains("////")) {
+                continue;
+            }
+            assertThat(scan(content)).isEqualTo(scanWithRegex(content));
+        }
+    }
+
+    private static void assertTitle(TitleScanner scanner, TitleType titleType, int titleLevel, String title, int titleStart, int titleEnd) {
+        assertThat(scanner.getTitleType()).isEqualTo(titleType);
+        assertThat(scanner.getTitleLevel()).isEqualTo(titleLevel);
+        assertThat(scanner.getTitle()).isEqualTo(title);
+        assertThat(scanner.getTitleStart()).isEqualTo(titleStart);
+        assertThat(scanner.getTitleEnd()).isEqualTo(titleEnd);
+    }
+
+    private static List<String> findTitles(String content) {
+        List<String> result = new ArrayList<>();
+        TitleScanner scanner = new TitleScanner(content);
+        while (scanner.find()) {
+            result.add(scanner.getTitle());
+        }
+        return result;
+    }
+
+    private static List<String> scan(String content) {
+        List<String> result = new ArrayList<>();
+        TitleScanner scanner = new TitleScanner(content);
+        while (scanner.find()) {
+            result.add(scanner.getTitleType() + "|" + scanner.getTitleLevel() + "|" + scanner.getTitle() + "|" + scanner.getTitleStart() + "|" + scanner.getTitleEnd());
+        }
+        return result;
+    }
+
+    private static List<String> scanWithRegex(String content) {
+        List<String> result = new ArrayList<>();
+        Matcher matcher = TITLE_REGEX.matcher(content);
+        while (matcher.find()) {
+            TitleType titleType = matcher.group(1)
+                    .isEmpty() ? TitleType.PRESENT : TitleType.COMMENTED;
+            int titleLevel = matcher.group(2)
+                    .length();
+            String title = matcher.group(3)
+                    .trim();
+            result.add(titleType + "|" + titleLevel + "|" + title + "|" + matcher.start() + "|" + matcher.end());
+        }
+        return result;
+    }
+}
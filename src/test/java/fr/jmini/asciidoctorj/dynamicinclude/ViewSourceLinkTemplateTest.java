@@ -0,0 +1,75 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class ViewSourceLinkTemplateTest {
+
+    private static final Function<String, Optional<String>> ATTRIBUTE_RESOLVER = (String s) -> {
+        switch (s) {
+        case "foo":
+            return Optional.of("bar");
+        case "repo":
+            return Optional.of("https://example.com/{file-relative-to-git-repository}");
+        case "loop":
+            return Optional.of("{loop}");
+        case "local-git-repository-path":
+            return Optional.of("/some/path/here/../");
+        case "gradle-projectdir":
+            return Optional.of("/some/test/../path/");
+        case "gradle-rootdir":
+            return Optional.of("/some/");
+        }
+        return Optional.empty();
+    };
+
+    @Test
+    void testRender() throws Exception {
+        Path file = Paths.get("/some/path/file.txt");
+        Path file2 = Paths.get(URI.create("file:///C:/some/path/file.txt"));
+
+        assertRender("xxx", file, "xxx");
+        assertRender("xxx{foo}xxx", file, "xxxbarxxx");
+        assertRender("{FOO}", file, "bar");
+        assertRender("xxx{baz}xxx", file, "xxx{baz}xxx");
+        assertRender("vscode://file{file-absolute-with-leading-slash}", file, "vscode://file/some/path/file.txt");
+        assertRender("vscode://file{file-absolute-with-leading-slash}", file2, "vscode://file/C:/some/path/file.txt");
+        assertRender("https://example.com/{file-relative-to-git-repository}", file, "https://example.com/file.txt");
+        assertRender("https://example.com/{file-relative-to-gradle-projectdir}", file, "https://example.com/file.txt");
+        assertRender("https://example.com/{file-relative-to-gradle-rootdir}", file, "https://example.com/path/file.txt");
+        assertRender("{repo}?{foo}", file, "https://example.com/file.txt?bar");
+
+        ViewSourceLinkTemplate template = ViewSourceLinkTemplate.compile("{repo}", ATTRIBUTE_RESOLVER);
+        assertThat(template.render(Paths.get("/some/path/other.txt"))).isEqualTo("https://example.com/other.txt");
+        assertThat(template.render(Paths.get("/some/path/{foo}.txt"))).isEqualTo("https://example.com/bar.txt");
+    }
+
+    @Test
+    void testNotCompiled() throws Exception {
+        Path file = Paths.get("/some/path/file.txt");
+
+        ViewSourceLinkTemplate circular = ViewSourceLinkTemplate.compile("{loop}", ATTRIBUTE_RESOLVER);
+        assertThat(circular.isCompiled()).isFalse();
+        assertThatThrownBy(() -> circular.render(file)).hasMessage("Can not evaluate the value of '{loop}', because of following circular definition: {loop} -> {loop}");
+
+        Function<String, Optional<String>> emptyResolver = (String s) -> Optional.empty();
+        ViewSourceLinkTemplate missingFolder = ViewSourceLinkTemplate.compile("{file-relative-to-gradle-rootdir}", emptyResolver);
+        assertThat(missingFolder.isCompiled()).isFalse();
+        assertThatThrownBy(() -> missingFolder.render(file)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void assertRender(String pattern, Path file, String expected) {
+        ViewSourceLinkTemplate template = ViewSourceLinkTemplate.compile(pattern, ATTRIBUTE_RESOLVER);
+        assertThat(template.isCompiled()).isTrue();
+        assertThat(template.render(file)).isEqualTo(expected);
+        assertThat(template.render(file)).isEqualTo(DynamicIncludeProcessor.resolveAttributesInViewSourceLinkPattern(pattern, file, ATTRIBUTE_RESOLVER));
+    }
+}
@@ -3,16 +3,24 @@ package fr.jmini.asciidoctorj.dynamicinclude.path;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
+import fr.jmini.utils.pathorder.SortConfig;
+
 class PathUtilTest {
 
     @Test
@@ -127,6 +135,120 @@ class PathUtilTest {
 
     }
 
+    @Test
+    void testFindFilesScanCache() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        Path pages = Files.createDirectories(dir.resolve("pages"));
+        Files.write(pages.resolve("page1.adoc"), "!! dummy content !!".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(PathUtil.findFiles(dir, "pages/*.adoc", Collections.emptyList())).containsExactly(pages.resolve("page1.adoc"));
+
+        // Clearing the cache forces a new walk:
+        Files.write(pages.resolve("page2.adoc"), "!! dummy content !!".getBytes(StandardCharsets.UTF_8));
+        FileTime time = FileTime.fromMillis(1_000_000L);
+        Files.setLastModifiedTime(pages, time);
+        PathUtil.clearScanCache();
+        assertThat(PathUtil.findFiles(dir, "pages/*.adoc", Collections.emptyList())).containsOnly(pages.resolve("page1.adoc"), pages.resolve("page2.adoc"));
+
+        // Results are cached as long as the directory modification time is unchanged:
+        Files.delete(pages.resolve("page2.adoc"));
+        Files.setLastModifiedTime(pages, time);
+        assertThat(PathUtil.findFiles(dir, "pages/*.adoc", Collections.emptyList())).containsOnly(pages.resolve("page1.adoc"), pages.resolve("page2.adoc"));
+
+        // A change of the directory modification time invalidates the cached result:
+        Files.setLastModifiedTime(pages, FileTime.fromMillis(2_000_000L));
+        assertThat(PathUtil.findFiles(dir, "pages/*.adoc", Collections.emptyList())).containsExactly(pages.resolve("page1.adoc"));
+
+        // Suffix filtering is applied on top of the cached result:
+        Files.write(pages.resolve("page1.internal.adoc"), "!! dummy content !!".getBytes(StandardCharsets.UTF_8));
+        PathUtil.clearScanCache();
+        assertThat(PathUtil.findFiles(dir, "pages/*.adoc", Collections.emptyList())).containsExactly(pages.resolve("page1.adoc"));
+        assertThat(PathUtil.findFiles(dir, "pages/*.adoc", Collections.singletonList("internal"))).containsOnly(pages.resolve("page1.adoc"), pages.resolve("page1.internal.adoc"));
+    }
+
+    @Test
+    void testFindFilesGlobPruning() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        for (String file : Arrays.asList("index.adoc", "pages/page1.adoc", "pages/page2.txt", "pages/nested/page3.adoc", "pages/nested/deep/page4.adoc", "other/page5.adoc", "other/nested/page6.adoc")) {
+            Path path = dir.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.write(path, "!! dummy content !!".getBytes(StandardCharsets.UTF_8));
+        }
+        Files.createDirectories(dir.resolve("pages/folder.adoc"));
+
+        assertThat(findFiles(dir, "pages/*.adoc")).containsOnly("pages/page1.adoc");
+        assertThat(findFiles(dir, "*.adoc")).containsOnly("index.adoc");
+        assertThat(findFiles(dir, "*/*.adoc")).containsOnly("pages/page1.adoc", "other/page5.adoc");
+        assertThat(findFiles(dir, "pages/*/*.adoc")).containsOnly("pages/nested/page3.adoc");
+        assertThat(findFiles(dir, "*/nested/*.adoc")).containsOnly("pages/nested/page3.adoc", "other/nested/page6.adoc");
+        assertThat(findFiles(dir, "*/{nested,deep}/*.adoc")).containsOnly("pages/nested/page3.adoc", "other/nested/page6.adoc");
+        assertThat(findFiles(dir, "pages/**/*.adoc")).containsOnly("pages/nested/page3.adoc", "pages/nested/deep/page4.adoc");
+        assertThat(findFiles(dir, "**/*.adoc")).containsOnly("pages/page1.adoc", "pages/nested/page3.adoc", "pages/nested/deep/page4.adoc", "other/page5.adoc", "other/nested/page6.adoc");
+        assertThat(findFiles(dir, "*/**/page*.adoc")).containsOnly("pages/nested/page3.adoc", "pages/nested/deep/page4.adoc", "other/nested/page6.adoc");
+        assertThat(findFiles(dir, "missing/*.adoc")).isEmpty();
+        assertThat(findFiles(dir, "pag*/*.adoc")).containsOnly("pages/page1.adoc");
+        assertThat(findFiles(dir, "*s/*.adoc")).containsOnly("pages/page1.adoc");
+        assertThat(findFiles(dir, "pages/n*/*.adoc")).containsOnly("pages/nested/page3.adoc");
+        assertThat(findFiles(dir, "oth*/**/*.adoc")).containsOnly("other/nested/page6.adoc");
+    }
+
+    @Test
+    void testLoadPageOrderCache() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        assertThat(PathUtil.loadPageOrder(dir)).isNull();
+
+        Path yamlFile = dir.resolve("pages.yaml");
+        Files.write(yamlFile, "order:\n  - page2\n  - page1\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(yamlFile, FileTime.fromMillis(1_000_000L));
+        SortConfig sortConfig = PathUtil.loadPageOrder(dir);
+        assertThat(sortConfig).isNotNull();
+        assertThat(PathUtil.loadPageOrder(dir)).isSameAs(sortConfig);
+
+        // A change of the modification time of the file invalidates the cached value:
+        Files.write(yamlFile, "order:\n  - page1\n  - page2\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(yamlFile, FileTime.fromMillis(2_000_000L));
+        SortConfig updatedSortConfig = PathUtil.loadPageOrder(dir);
+        assertThat(updatedSortConfig).isNotNull();
+        assertThat(updatedSortConfig).isNotSameAs(sortConfig);
+
+        Files.delete(yamlFile);
+        assertThat(PathUtil.loadPageOrder(dir)).isNull();
+    }
+
+    @Test
+    void testSortFilesLoadsPageOrderOnce() throws Exception {
+        Path dir = Files.createTempDirectory("dir");
+        List<Path> files = new ArrayList<>();
+        for (String folder : Arrays.asList("a", "b", "c")) {
+            for (int i = 1; i <= 20; i++) {
+                files.add(dir.resolve(folder + "/page" + i + ".adoc"));
+            }
+        }
+        Collections.shuffle(files, new Random(42));
+
+        Map<Path, Integer> loadCounts = new HashMap<>();
+        List<String> messages = new ArrayList<>();
+        List<Path> sorted = PathUtil.sortFiles(messages::add, files, Collections.emptyList(), p -> {
+            loadCounts.merge(p, 1, Integer::sum);
+            return null;
+        });
+        assertThat(loadCounts.values()).containsOnly(1);
+
+        List<String> expectedMessages = new ArrayList<>();
+        List<Path> expected = PathUtil.sortFiles(expectedMessages::add, files, Collections.emptyList());
+        assertThat(sorted).isEqualTo(expected);
+        assertThat(messages).isEqualTo(expectedMessages);
+    }
+
+    private List<String> findFiles(Path dir, String glob) {
+        return PathUtil.findFiles(dir, glob, Collections.emptyList())
+                .stream()
+                .map(p -> dir.relativize(p)
+                        .toString()
+                        .replace('\\', '/'))
+                .collect(Collectors.toList());
+    }
+
     private List<String> findAndSortFiles(Path dir, String currentFileName, String glob, List<String> nameSuffixes) throws IOException {
         return findAndSortFiles(dir, currentFileName, glob, nameSuffixes, 0);
     }
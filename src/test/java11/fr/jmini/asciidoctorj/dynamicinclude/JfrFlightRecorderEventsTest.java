@@ -0,0 +1,103 @@
+package fr.jmini.asciidoctorj.dynamicinclude;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrFlightRecorderEventsTest {
+
+    private static final String PREFIX = "fr.jmini.asciidoctorj.dynamicinclude.";
+
+    @Test
+    void testInstance() throws Exception {
+        assertThat(FlightRecorderEvents.INSTANCE).isInstanceOf(JfrFlightRecorderEvents.class);
+    }
+
+    @Test
+    void testNotRecording() throws Exception {
+        FlightRecorderEvents events = new JfrFlightRecorderEvents();
+        assertThat(events.beginDirective()).isNull();
+        assertThat(events.beginDirectoryWalk()).isNull();
+        assertThat(events.beginFileRead()).isNull();
+        assertThat(events.beginXrefRewrite()).isNull();
+    }
+
+    @Test
+    void testRecordEvents() throws Exception {
+        FlightRecorderEvents events = new JfrFlightRecorderEvents();
+        Path dir = Paths.get("/tmp/dir");
+        Path file = dir.resolve("page.adoc");
+        Path dump = Files.createTempFile("dynamic-include", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] { "Directive", "DirectoryWalk", "FileRead", "XrefRewrite" }) {
+                recording.enable(PREFIX + name);
+            }
+            recording.start();
+
+            Object directive = events.beginDirective();
+            assertThat(directive).isNotNull();
+            Object directoryWalk = events.beginDirectoryWalk();
+            events.commitDirectoryWalk(directoryWalk, "*.adoc", dir, 3);
+            Object fileRead = events.beginFileRead();
+            events.commitFileRead(fileRead, file, 1234L);
+            Object xrefRewrite = events.beginXrefRewrite();
+            events.commitXrefRewrite(xrefRewrite, file, 567);
+            events.commitDirective(directive, "*.adoc", dir, 3, 1234L);
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(dump)
+                .stream()
+                .filter(e -> e.getEventType()
+                        .getName()
+                        .startsWith(PREFIX))
+                .collect(Collectors.toList());
+        Files.delete(dump);
+        assertThat(recorded).hasSize(4);
+
+        RecordedEvent directiveEvent = find(recorded, "Directive");
+        assertThat(directiveEvent.getString("glob")).isEqualTo("*.adoc");
+        assertThat(directiveEvent.getString("directory")).isEqualTo(dir.toString());
+        assertThat(directiveEvent.getInt("fileCount")).isEqualTo(3);
+        assertThat(directiveEvent.getLong("byteCount")).isEqualTo(1234L);
+
+        RecordedEvent directoryWalkEvent = find(recorded, "DirectoryWalk");
+        assertThat(directoryWalkEvent.getString("glob")).isEqualTo("*.adoc");
+        assertThat(directoryWalkEvent.getString("directory")).isEqualTo(dir.toString());
+        assertThat(directoryWalkEvent.getInt("fileCount")).isEqualTo(3);
+
+        RecordedEvent fileReadEvent = find(recorded, "FileRead");
+        assertThat(fileReadEvent.getString("file")).isEqualTo(file.toString());
+        assertThat(fileReadEvent.getLong("byteCount")).isEqualTo(1234L);
+
+        RecordedEvent xrefRewriteEvent = find(recorded, "XrefRewrite");
+        assertThat(xrefRewriteEvent.getString("file")).isEqualTo(file.toString());
+        assertThat(xrefRewriteEvent.getInt("length")).isEqualTo(567);
+
+        // The directive event spans the events of its units of work:
+        assertThat(directiveEvent.getStartTime()).isBeforeOrEqualTo(directoryWalkEvent.getStartTime());
+        assertThat(directiveEvent.getEndTime()).isAfterOrEqualTo(xrefRewriteEvent.getEndTime());
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> recorded, String name) {
+        return recorded.stream()
+                .filter(e -> e.getEventType()
+                        .getName()
+                        .equals(PREFIX + name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Event not recorded: " + name));
+    }
+}